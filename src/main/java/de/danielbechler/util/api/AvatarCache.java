@@ -0,0 +1,335 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.concurrent.*;
+import de.danielbechler.util.io.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fetches Gravatar images and keeps them in a local directory.
+ * <p/>
+ * Images are keyed by hash, size and rating. Within <code>maxAge</code> they are served straight from disk,
+ * afterwards they are revalidated with a conditional request (<code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>), so unchanged images are not downloaded again. Avatars that don't exist
+ * (HTTP 404) are remembered the same way. Concurrent requests for the same avatar share a single request.
+ *
+ * @author Daniel Bechler
+ */
+public final class AvatarCache
+{
+	private static final String IMAGE_SUFFIX = ".img";
+	private static final String METADATA_SUFFIX = ".properties";
+
+	private final File directory;
+	private final AvatarTransport transport;
+	private final long maxAgeMillis;
+	private final SingleFlightLoader<AvatarKey, Avatar> loader;
+
+	public AvatarCache(final File directory, final long maxAge, final TimeUnit unit)
+	{
+		this(directory, new HttpAvatarTransport(), maxAge, unit);
+	}
+
+	public AvatarCache(final File directory,
+					   final AvatarTransport transport,
+					   final long maxAge,
+					   final TimeUnit unit)
+	{
+		Assert.notNull(directory, "directory");
+		Assert.notNull(transport, "transport");
+		Assert.greaterOrEqual(0L, maxAge, "maxAge");
+		Assert.notNull(unit, "unit");
+		this.directory = directory;
+		this.transport = transport;
+		this.maxAgeMillis = unit.toMillis(maxAge);
+		this.loader = new SingleFlightLoader<AvatarKey, Avatar>(new AvatarLoader());
+	}
+
+	/**
+	 * @param hash   The Gravatar hash (see {@link GravatarUrlBuilder#emailToHash(String)}).
+	 * @param size   The requested size in pixels.
+	 * @param rating The maximum rating. May be <code>null</code>.
+	 *
+	 * @return The avatar or <code>null</code>, if Gravatar doesn't have one for the given hash.
+	 *
+	 * @throws IOException If the avatar isn't cached and couldn't be fetched.
+	 */
+	public Avatar get(final String hash, final int size, final GravatarUrlBuilder.Rating rating)
+			throws IOException
+	{
+		final AvatarKey key = new AvatarKey(hash, size, rating);
+		try
+		{
+			return loader.get(key);
+		}
+		catch (RuntimeException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private Avatar fetch(final AvatarKey key) throws IOException
+	{
+		final File imageFile = new File(directory, key.getFileName() + IMAGE_SUFFIX);
+		final File metadataFile = new File(directory, key.getFileName() + METADATA_SUFFIX);
+		final Properties metadata = readMetadata(metadataFile);
+		final long now = System.currentTimeMillis();
+		final boolean cached = metadata != null && (isMissing(metadata) || imageFile.isFile());
+		if (cached && now - getLong(metadata, "fetchedAt") < maxAgeMillis)
+		{
+			return toAvatar(metadata, imageFile);
+		}
+
+		final String url = GravatarUrlBuilder.forHash(key.hash)
+				.secure(true)
+				.withSize(key.size)
+				.withRating(key.rating)
+				.toRequestUrl();
+		final String etag = cached ? metadata.getProperty("etag") : null;
+		final long lastModified = cached ? getLong(metadata, "lastModified") : 0;
+		final AvatarTransport.Response response = transport.fetch(url, etag, lastModified);
+		final int statusCode = response.getStatusCode();
+		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached)
+		{
+			metadata.setProperty("fetchedAt", Long.toString(now));
+			writeMetadata(metadataFile, metadata);
+			return toAvatar(metadata, imageFile);
+		}
+
+		final Properties newMetadata = new Properties();
+		newMetadata.setProperty("fetchedAt", Long.toString(now));
+		if (statusCode == HttpURLConnection.HTTP_OK)
+		{
+			setIfNotNull(newMetadata, "etag", response.getEtag());
+			setIfNotNull(newMetadata, "contentType", response.getContentType());
+			newMetadata.setProperty("lastModified", Long.toString(response.getLastModified()));
+			writeAtomically(imageFile, response.getBody());
+		}
+		else if (statusCode == HttpURLConnection.HTTP_NOT_FOUND)
+		{
+			newMetadata.setProperty("missing", "true");
+			setIfNotNull(newMetadata, "etag", response.getEtag());
+			if (imageFile.exists() && !imageFile.delete())
+			{
+				throw new IOException("Unable to delete '" + imageFile.getPath() + "'");
+			}
+		}
+		else
+		{
+			throw new IOException("Unexpected response status " + statusCode + " for " + url);
+		}
+		writeMetadata(metadataFile, newMetadata);
+		return toAvatar(newMetadata, imageFile);
+	}
+
+	private static Avatar toAvatar(final Properties metadata, final File imageFile) throws IOException
+	{
+		if (isMissing(metadata))
+		{
+			return null;
+		}
+		return new Avatar(FileUtils.readAsBytes(imageFile),
+				metadata.getProperty("contentType"),
+				metadata.getProperty("etag"),
+				getLong(metadata, "lastModified"));
+	}
+
+	private static boolean isMissing(final Properties metadata)
+	{
+		return Boolean.parseBoolean(metadata.getProperty("missing"));
+	}
+
+	private static long getLong(final Properties metadata, final String key)
+	{
+		final String value = metadata.getProperty(key);
+		if (value == null)
+		{
+			return 0;
+		}
+		try
+		{
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException e)
+		{
+			return 0;
+		}
+	}
+
+	private static void setIfNotNull(final Properties metadata, final String key, final String value)
+	{
+		if (value != null)
+		{
+			metadata.setProperty(key, value);
+		}
+	}
+
+	private static Properties readMetadata(final File file) throws IOException
+	{
+		if (!file.isFile())
+		{
+			return null;
+		}
+		final Properties metadata = new Properties();
+		final InputStream is = new FileInputStream(file);
+		try
+		{
+			metadata.load(is);
+		}
+		finally
+		{
+			is.close();
+		}
+		return metadata;
+	}
+
+	private static void writeMetadata(final File file, final Properties metadata) throws IOException
+	{
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		metadata.store(os, null);
+		writeAtomically(file, os.toByteArray());
+	}
+
+	/** Writes to a temporary file first, so readers never see partially written files. */
+	private static void writeAtomically(final File target, final byte[] data) throws IOException
+	{
+		final File temporaryFile = new File(target.getPath() + ".tmp" + Thread.currentThread().getId());
+		FileUtils.createFileFromByteArray(data, temporaryFile);
+		if (!temporaryFile.renameTo(target))
+		{
+			// renameTo doesn't replace existing files on every platform
+			if (!target.delete() || !temporaryFile.renameTo(target))
+			{
+				temporaryFile.delete();
+				throw new IOException("Unable to write '" + target.getPath() + "'");
+			}
+		}
+	}
+
+	private final class AvatarLoader implements SingleFlightLoader.Loader<AvatarKey, Avatar>
+	{
+		@Override
+		public Avatar load(final AvatarKey key) throws Exception
+		{
+			return fetch(key);
+		}
+	}
+
+	public static final class Avatar
+	{
+		private final byte[] data;
+		private final String contentType;
+		private final String etag;
+		private final long lastModified;
+
+		private Avatar(final byte[] data, final String contentType, final String etag, final long lastModified)
+		{
+			this.data = data;
+			this.contentType = contentType;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+
+		public byte[] getData()
+		{
+			return data;
+		}
+
+		public String getContentType()
+		{
+			return contentType;
+		}
+
+		public String getEtag()
+		{
+			return etag;
+		}
+
+		public long getLastModified()
+		{
+			return lastModified;
+		}
+	}
+
+	private static final class AvatarKey
+	{
+		private final String hash;
+		private final int size;
+		private final GravatarUrlBuilder.Rating rating;
+
+		private AvatarKey(final String hash, final int size, final GravatarUrlBuilder.Rating rating)
+		{
+			Assert.hasText(hash, "hash");
+			for (int i = 0; i < hash.length(); i++)
+			{
+				// the hash becomes part of a file name, so don't let anything but ASCII hex digits through
+				if (!isHexDigit(hash.charAt(i)))
+				{
+					throw new IllegalArgumentException("Argument [hash] must be a hexadecimal string");
+				}
+			}
+			this.hash = hash.toLowerCase();
+			this.size = size;
+			this.rating = rating;
+		}
+
+		private static boolean isHexDigit(final char c)
+		{
+			return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+		}
+
+		private String getFileName()
+		{
+			final String ratingName = rating != null ? rating.name().toLowerCase() : "any";
+			return hash + '-' + size + '-' + ratingName;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (this == o)
+			{
+				return true;
+			}
+			if (!(o instanceof AvatarKey))
+			{
+				return false;
+			}
+			final AvatarKey that = (AvatarKey) o;
+			return size == that.size && rating == that.rating && hash.equals(that.hash);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = hash.hashCode();
+			result = 31 * result + size;
+			result = 31 * result + (rating != null ? rating.hashCode() : 0);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import java.io.*;
+
+/**
+ * Performs the HTTP requests of an {@link AvatarCache}.
+ *
+ * @author Daniel Bechler
+ * @see HttpAvatarTransport
+ */
+public interface AvatarTransport
+{
+	/**
+	 * Requests the given URL. If <code>etag</code> or <code>lastModified</code> are given, the request must be
+	 * conditional (<code>If-None-Match</code> and <code>If-Modified-Since</code>).
+	 *
+	 * @param url          The URL of the avatar.
+	 * @param etag         The entity tag of the cached image or <code>null</code>.
+	 * @param lastModified The last modification time of the cached image in milliseconds or <code>0</code>.
+	 *
+	 * @return The response. The body is only expected for status code 200.
+	 *
+	 * @throws IOException If the request failed.
+	 */
+	Response fetch(String url, String etag, long lastModified) throws IOException;
+
+	final class Response
+	{
+		private final int statusCode;
+		private final byte[] body;
+		private final String contentType;
+		private final String etag;
+		private final long lastModified;
+
+		public Response(final int statusCode,
+						final byte[] body,
+						final String contentType,
+						final String etag,
+						final long lastModified)
+		{
+			this.statusCode = statusCode;
+			this.body = body;
+			this.contentType = contentType;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+
+		public int getStatusCode()
+		{
+			return statusCode;
+		}
+
+		public byte[] getBody()
+		{
+			return body;
+		}
+
+		public String getContentType()
+		{
+			return contentType;
+		}
+
+		public String getEtag()
+		{
+			return etag;
+		}
+
+		public long getLastModified()
+		{
+			return lastModified;
+		}
+	}
+}
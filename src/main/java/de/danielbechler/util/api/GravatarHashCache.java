@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import de.danielbechler.util.concurrent.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded, thread-safe memo cache for {@link GravatarUrlBuilder#emailToHash(String)}. Addresses are cached
+ * as given, so a cache hit skips lower-casing and trimming as well as hashing.
+ *
+ * @author Daniel Bechler
+ */
+public final class GravatarHashCache
+{
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private final BoundedCache<String, String> hashes;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	public GravatarHashCache()
+	{
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public GravatarHashCache(final int maximumSize)
+	{
+		this.hashes = new BoundedCache<String, String>(maximumSize);
+	}
+
+	/** @see GravatarUrlBuilder#emailToHash(String) */
+	public String emailToHash(final String emailAddress)
+	{
+		if (emailAddress != null)
+		{
+			final String hash = hashes.get(emailAddress);
+			if (hash != null)
+			{
+				hitCount.incrementAndGet();
+				return hash;
+			}
+		}
+		missCount.incrementAndGet();
+		return hashes.putIfAbsent(emailAddress, GravatarUrlBuilder.emailToHash(emailAddress));
+	}
+
+	/** Same as {@link GravatarUrlBuilder#forEmailAddress(String)}, but with a cached hash. */
+	public GravatarUrlBuilder forEmailAddress(final String emailAddress)
+	{
+		return GravatarUrlBuilder.forHash(emailToHash(emailAddress));
+	}
+
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/** @return The ratio of cache hits to all lookups, or <code>0</code> if there haven't been any lookups. */
+	public double getHitRate()
+	{
+		final long hits = hitCount.get();
+		final long total = hits + missCount.get();
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	public int size()
+	{
+		return hashes.size();
+	}
+
+	/** Removes all cached hashes and resets the statistics. */
+	public void clear()
+	{
+		hashes.clear();
+		hitCount.set(0);
+		missCount.set(0);
+	}
+}
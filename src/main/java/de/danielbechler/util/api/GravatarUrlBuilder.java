@@ -18,9 +18,8 @@ package de.danielbechler.util.api;
 
 import de.danielbechler.util.assertion.*;
 import de.danielbechler.util.codec.*;
-import de.danielbechler.util.url.*;
-
-import java.nio.charset.*;
+import de.danielbechler.util.concurrent.*;
+import de.danielbechler.util.object.*;
 
 /** @author Daniel Bechler */
 public final class GravatarUrlBuilder
@@ -66,6 +65,9 @@ public final class GravatarUrlBuilder
 		}
 	}
 
+	private static final BoundedCache<TemplateKey, GravatarUrlTemplate> TEMPLATES =
+			new BoundedCache<TemplateKey, GravatarUrlTemplate>(64);
+
 	private final String hash;
 
 	private int size = 200;
@@ -112,38 +114,24 @@ public final class GravatarUrlBuilder
 
 	public String toRequestUrl()
 	{
-		final StringBuilder sb = new StringBuilder();
-		if (secure)
-		{
-			sb.append("https://secure.gravatar.com");
-		}
-		else
-		{
-			sb.append("http://www.gravatar.com");
-		}
-		sb.append("/avatar/").append(hash);
-		final UrlParameters params = new UrlParameters();
-		if (size > 0)
-		{
-			params.set("s", Integer.toString(size));
-		}
-		if (defaultImage != null)
-		{
-			params.set("d", defaultImage.getValue());
-		}
-		if (rating != null)
-		{
-			params.set("r", rating.name().toLowerCase());
-		}
-		if (forceDefault)
-		{
-			params.set("f", "y");
-		}
-		if (!params.isEmpty())
+		return toTemplate().toRequestUrl(hash);
+	}
+
+	/**
+	 * Compiles the options of this builder into a template, which can create request URLs for any hash much
+	 * faster than this builder. Templates are cached per combination of options.
+	 */
+	public GravatarUrlTemplate toTemplate()
+	{
+		final TemplateKey key = new TemplateKey(secure, size, defaultImage, rating, forceDefault);
+		final GravatarUrlTemplate template = TEMPLATES.get(key);
+		if (template != null)
 		{
-			sb.append('?').append(params.toQueryString(Charset.forName("UTF-8")));
+			return template;
 		}
-		return sb.toString();
+		final GravatarUrlTemplate newTemplate = new GravatarUrlTemplate(secure, size, defaultImage, rating,
+				forceDefault);
+		return TEMPLATES.putIfAbsent(key, newTemplate);
 	}
 
 	public static String emailToHash(final String emailAddress)
@@ -172,4 +160,56 @@ public final class GravatarUrlBuilder
 	{
 		return toRequestUrl();
 	}
+
+	private static final class TemplateKey
+	{
+		private final boolean secure;
+		private final int size;
+		private final String defaultImage;
+		private final Rating rating;
+		private final boolean forceDefault;
+
+		private TemplateKey(final boolean secure,
+							final int size,
+							final DefaultImage defaultImage,
+							final Rating rating,
+							final boolean forceDefault)
+		{
+			this.secure = secure;
+			this.size = size;
+			this.defaultImage = defaultImage != null ? defaultImage.getValue() : null;
+			this.rating = rating;
+			this.forceDefault = forceDefault;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (this == o)
+			{
+				return true;
+			}
+			if (!(o instanceof TemplateKey))
+			{
+				return false;
+			}
+			final TemplateKey that = (TemplateKey) o;
+			return secure == that.secure &&
+					size == that.size &&
+					forceDefault == that.forceDefault &&
+					rating == that.rating &&
+					ObjectUtils.isEqual(defaultImage, that.defaultImage);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = secure ? 1 : 0;
+			result = 31 * result + size;
+			result = 31 * result + (defaultImage != null ? defaultImage.hashCode() : 0);
+			result = 31 * result + (rating != null ? rating.hashCode() : 0);
+			result = 31 * result + (forceDefault ? 1 : 0);
+			return result;
+		}
+	}
 }
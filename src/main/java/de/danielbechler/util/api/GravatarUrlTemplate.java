@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.text.*;
+import de.danielbechler.util.url.*;
+
+import java.util.*;
+
+/**
+ * A precompiled Gravatar request URL for a fixed set of options. The part before and the part after the hash
+ * are built once, so creating a URL only means splicing in the hash. Instances are immutable and can be
+ * shared between threads.
+ *
+ * @author Daniel Bechler
+ * @see GravatarUrlBuilder#toTemplate()
+ */
+public final class GravatarUrlTemplate
+{
+	private final char[] prefix;
+	private final char[] suffix;
+
+	GravatarUrlTemplate(final boolean secure,
+						final int size,
+						final GravatarUrlBuilder.DefaultImage defaultImage,
+						final GravatarUrlBuilder.Rating rating,
+						final boolean forceDefault)
+	{
+		final String host = secure ? "https://secure.gravatar.com" : "http://www.gravatar.com";
+		this.prefix = (host + "/avatar/").toCharArray();
+		final UrlParameters params = new UrlParameters();
+		if (size > 0)
+		{
+			params.set("s", Integer.toString(size));
+		}
+		if (defaultImage != null)
+		{
+			params.set("d", defaultImage.getValue());
+		}
+		if (rating != null)
+		{
+			params.set("r", rating.name().toLowerCase());
+		}
+		if (forceDefault)
+		{
+			params.set("f", "y");
+		}
+		if (!params.isEmpty())
+		{
+			this.suffix = ('?' + params.toQueryString(UrlParameters.DEFAULT_CHARSET)).toCharArray();
+		}
+		else
+		{
+			this.suffix = new char[0];
+		}
+	}
+
+	public String toRequestUrl(final String hash)
+	{
+		Assert.hasText(hash, "hash");
+		final StringBuilder sb = StringBuilderCache.acquire(prefix.length + hash.length() + suffix.length);
+		sb.append(prefix).append(hash).append(suffix);
+		return StringBuilderCache.toStringAndRelease(sb);
+	}
+
+	/** @return The request URLs for the given email addresses, in the same order. */
+	public List<String> forEmailAddresses(final Collection<String> emailAddresses)
+	{
+		return forEmailAddresses(emailAddresses, null);
+	}
+
+	/**
+	 * @param emailAddresses The email addresses to create request URLs for.
+	 * @param hashCache      Used to resolve the hashes of the email addresses. May be <code>null</code>.
+	 *
+	 * @return The request URLs for the given email addresses, in the same order.
+	 */
+	public List<String> forEmailAddresses(final Collection<String> emailAddresses,
+										  final GravatarHashCache hashCache)
+	{
+		Assert.notNull(emailAddresses, "emailAddresses");
+		final List<String> urls = new ArrayList<String>(emailAddresses.size());
+		for (final String emailAddress : emailAddresses)
+		{
+			final String hash;
+			if (hashCache != null)
+			{
+				hash = hashCache.emailToHash(emailAddress);
+			}
+			else
+			{
+				hash = GravatarUrlBuilder.emailToHash(emailAddress);
+			}
+			urls.add(toRequestUrl(hash));
+		}
+		return urls;
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String(prefix) + "{hash}" + new String(suffix);
+	}
+}
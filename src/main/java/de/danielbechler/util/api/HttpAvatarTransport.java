@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import de.danielbechler.util.io.*;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * {@link AvatarTransport} based on {@link HttpURLConnection}.
+ *
+ * @author Daniel Bechler
+ */
+public final class HttpAvatarTransport implements AvatarTransport
+{
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	public HttpAvatarTransport()
+	{
+		this(5000, 10000);
+	}
+
+	/**
+	 * @param connectTimeout The connect timeout in milliseconds.
+	 * @param readTimeout    The read timeout in milliseconds.
+	 */
+	public HttpAvatarTransport(final int connectTimeout, final int readTimeout)
+	{
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	@Override
+	public Response fetch(final String url, final String etag, final long lastModified) throws IOException
+	{
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setUseCaches(false);
+		if (etag != null)
+		{
+			connection.setRequestProperty("If-None-Match", etag);
+		}
+		if (lastModified > 0)
+		{
+			connection.setIfModifiedSince(lastModified);
+		}
+		final int statusCode = connection.getResponseCode();
+		final byte[] body;
+		if (statusCode == HttpURLConnection.HTTP_OK)
+		{
+			final InputStream is = connection.getInputStream();
+			try
+			{
+				body = FileUtils.inputStreamToByteArray(is, 8192);
+			}
+			finally
+			{
+				is.close();
+			}
+		}
+		else
+		{
+			body = null;
+			final InputStream errorStream = connection.getErrorStream();
+			if (errorStream != null)
+			{
+				// drain the error stream, so the connection can be reused
+				try
+				{
+					FileUtils.inputStreamToByteArray(errorStream, 1024);
+				}
+				finally
+				{
+					errorStream.close();
+				}
+			}
+		}
+		return new Response(statusCode,
+				body,
+				connection.getContentType(),
+				connection.getHeaderField("ETag"),
+				connection.getLastModified());
+	}
+}
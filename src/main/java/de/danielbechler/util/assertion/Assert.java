@@ -78,6 +78,16 @@ public class Assert
 	 *                                  non-whitespace characters.
 	 */
 	public static void hasText(final String value, final String name) throws IllegalArgumentException
+	{
+		hasText((CharSequence) value, name);
+	}
+
+	/**
+	 * Same as {@link #hasText(String, String)} but for any kind of {@link CharSequence}.
+	 *
+	 * @see #hasText(String, String)
+	 */
+	public static void hasText(final CharSequence value, final String name) throws IllegalArgumentException
 	{
 		if (StringUtils.isEmpty(name))
 		// Yo dawg, I heard you like assertions, so I put an assertion in your assertion
@@ -101,7 +111,7 @@ public class Assert
 
 	public static <T extends CharSequence> T notEmpty(final T s, final String name)
 	{
-		if (s == null || s.toString().trim().length() == 0)
+		if (StringUtils.isEmpty(s))
 		{
 			throw escalate("Argument [%s] must not be empty", name);
 		}
@@ -15,11 +15,15 @@
  */
 package de.danielbechler.util.codec;
 
+import de.danielbechler.util.text.*;
+
 import java.security.*;
 
 /** @author unknown */
 final class HashCodeBuilder
 {
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	public enum HashCodeType
 	{
 		MD5,
@@ -67,19 +71,11 @@ final class HashCodeBuilder
 			throw new RuntimeException("Cannot generate MD5 hash. The " +
 					"algorithm you wanted to use seems to be unknown to the JVM.", e);
 		}
-		final StringBuilder sb = new StringBuilder();
+		final StringBuilder sb = StringBuilderCache.acquire(hash.length * 2);
 		for (final byte b : hash)
 		{
-			sb.append(toHexString(b));
+			sb.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
 		}
-		return sb.toString();
-	}
-
-	private static String toHexString(final byte bytes)
-	{
-		final int value = (bytes & 0x7F) + (bytes < 0 ? 128 : 0);
-		String ret = (value < 16 ? "0" : "");
-		ret += Integer.toHexString(value).toLowerCase();
-		return ret;
+		return StringBuilderCache.toStringAndRelease(sb);
 	}
 }
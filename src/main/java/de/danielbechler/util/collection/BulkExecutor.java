@@ -0,0 +1,428 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.collection;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.exception.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Applies an operation to every element of a {@link Collection} or {@link Iterator} using multiple threads.
+ * <p/>
+ * The elements are pulled from the source in batches, so the (not thread-safe) source iterator is only
+ * touched once per batch. The calling thread always takes part in the work, which means that a parallelism
+ * of 1 never leaves the current thread. The first exception thrown by the operation stops all workers and is
+ * rethrown to the caller.
+ * <p/>
+ * By default the work is spread over a shared pool of daemon threads. Any {@link ExecutorService} can be
+ * used instead, e.g. a virtual thread executor on newer JVMs.
+ *
+ * @author Daniel Bechler
+ */
+public final class BulkExecutor
+{
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	public interface Mapper<I, O>
+	{
+		O map(I item) throws Exception;
+	}
+
+	public interface Visitor<T>
+	{
+		void visit(T item) throws Exception;
+	}
+
+	private ExecutorService executor;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private boolean ordered = true;
+
+	private BulkExecutor()
+	{
+	}
+
+	public static BulkExecutor create()
+	{
+		return new BulkExecutor();
+	}
+
+	public BulkExecutor withExecutor(final ExecutorService executor)
+	{
+		this.executor = executor;
+		return this;
+	}
+
+	/** @param parallelism The maximum number of threads (including the calling one) working on a job. */
+	public BulkExecutor withParallelism(final int parallelism)
+	{
+		this.parallelism = Assert.greaterOrEqual(1, parallelism, "parallelism");
+		return this;
+	}
+
+	public BulkExecutor withBatchSize(final int batchSize)
+	{
+		this.batchSize = Assert.greaterOrEqual(1, batchSize, "batchSize");
+		return this;
+	}
+
+	/**
+	 * Controls whether results of an {@link Iterator} source are returned in source order. Results of a
+	 * {@link Collection} source are always returned in source order, since their position is known upfront.
+	 */
+	public BulkExecutor ordered(final boolean ordered)
+	{
+		this.ordered = ordered;
+		return this;
+	}
+
+	/**
+	 * @return A fixed-size list containing the results of the given <code>mapper</code> in the iteration order
+	 *         of the given <code>items</code>.
+	 */
+	public <I, O> List<O> map(final Collection<? extends I> items, final Mapper<? super I, ? extends O> mapper)
+	{
+		Assert.notNull(items, "items");
+		Assert.notNull(mapper, "mapper");
+		final Job<I, O> job = new Job<I, O>(items.iterator(), mapper, items.size(), true);
+		execute(job, workersFor(items.size()));
+		return job.getResults();
+	}
+
+	/** @return A list containing the results of the given <code>mapper</code>. */
+	public <I, O> List<O> map(final Iterator<? extends I> items, final Mapper<? super I, ? extends O> mapper)
+	{
+		Assert.notNull(items, "items");
+		Assert.notNull(mapper, "mapper");
+		final Job<I, O> job = new Job<I, O>(items, mapper, -1, true);
+		execute(job, parallelism);
+		return job.getResults();
+	}
+
+	public <T> void forEach(final Collection<? extends T> items, final Visitor<? super T> visitor)
+	{
+		Assert.notNull(items, "items");
+		Assert.notNull(visitor, "visitor");
+		execute(new Job<T, Object>(items.iterator(), new VisitingMapper<T>(visitor), -1, false),
+				workersFor(items.size()));
+	}
+
+	public <T> void forEach(final Iterator<? extends T> items, final Visitor<? super T> visitor)
+	{
+		Assert.notNull(items, "items");
+		Assert.notNull(visitor, "visitor");
+		execute(new Job<T, Object>(items, new VisitingMapper<T>(visitor), -1, false), parallelism);
+	}
+
+	private int workersFor(final int size)
+	{
+		final int batches = (size + batchSize - 1) / batchSize;
+		return Math.max(1, Math.min(parallelism, batches));
+	}
+
+	private void execute(final Job<?, ?> job, final int workers)
+	{
+		final List<Future<?>> futures = new ArrayList<Future<?>>(workers - 1);
+		if (workers > 1)
+		{
+			final ExecutorService executorService = executor != null ? executor : SharedExecutorHolder.INSTANCE;
+			for (int i = 1; i < workers; i++)
+			{
+				try
+				{
+					futures.add(executorService.submit(job));
+				}
+				catch (RejectedExecutionException ignored)
+				{
+					// the calling thread and the workers already started will pick up the slack
+					break;
+				}
+			}
+		}
+		job.run();
+		// the source is exhausted (or the job failed), so tasks that haven't started yet have nothing left to do
+		// and waiting for them could block forever on a busy or nested executor
+		final boolean failed = job.hasFailed();
+		for (final Future<?> future : futures)
+		{
+			future.cancel(failed);
+		}
+		// cancelling doesn't stop workers that are already running, so wait for them to finish their batches
+		job.awaitWorkers();
+		job.rethrowFailure();
+	}
+
+	private final class Job<I, O> implements Runnable
+	{
+		private final Object lock = new Object();
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private final Iterator<? extends I> source;
+		private final Mapper<? super I, ? extends O> mapper;
+		private final boolean collect;
+		private final boolean keepOrder = ordered;
+		private final int jobBatchSize = batchSize;
+
+		/** Presized result array, if the number of elements is known upfront. */
+		private final Object[] results;
+
+		/** Result batches keyed by their source offset, if the number of elements is unknown. */
+		private final SortedMap<Integer, Object[]> batches;
+
+		private final List<Object> unorderedResults;
+
+		/** Guarded by <code>lock</code>. */
+		private int offset;
+
+		/** Guarded by <code>lock</code>. */
+		private int activeWorkers;
+
+		/** Guarded by <code>lock</code>. Once set, no more workers start. */
+		private boolean closed;
+
+		private Job(final Iterator<? extends I> source,
+					final Mapper<? super I, ? extends O> mapper,
+					final int size,
+					final boolean collect)
+		{
+			this.source = source;
+			this.mapper = mapper;
+			this.collect = collect;
+			this.results = collect && size >= 0 ? new Object[size] : null;
+			this.batches = collect && size < 0 && keepOrder ? new TreeMap<Integer, Object[]>() : null;
+			this.unorderedResults = collect && size < 0 && !keepOrder ? new ArrayList<Object>() : null;
+		}
+
+		@Override
+		public void run()
+		{
+			synchronized (lock)
+			{
+				if (closed)
+				{
+					return;
+				}
+				activeWorkers++;
+			}
+			final Object[] batch = new Object[jobBatchSize];
+			try
+			{
+				while (!hasFailed())
+				{
+					final int start;
+					final int count;
+					synchronized (lock)
+					{
+						count = fill(batch);
+						start = offset;
+						offset += count;
+					}
+					if (count == 0)
+					{
+						return;
+					}
+					process(batch, start, count);
+				}
+			}
+			catch (Throwable e)
+			{
+				fail(e);
+			}
+			finally
+			{
+				synchronized (lock)
+				{
+					activeWorkers--;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		/** Waits until all workers have returned and keeps new ones from starting. */
+		private void awaitWorkers()
+		{
+			boolean interrupted = false;
+			synchronized (lock)
+			{
+				closed = true;
+				while (activeWorkers > 0)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException e)
+					{
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private int fill(final Object[] batch)
+		{
+			int count = 0;
+			while (count < batch.length && source.hasNext())
+			{
+				batch[count++] = source.next();
+			}
+			return count;
+		}
+
+		@SuppressWarnings({"unchecked"})
+		private void process(final Object[] batch, final int start, final int count) throws Exception
+		{
+			final Object[] target;
+			final int targetOffset;
+			if (results != null)
+			{
+				if (start + count > results.length)
+				{
+					throw new ConcurrentModificationException("The source collection grew while being processed");
+				}
+				target = results;
+				targetOffset = start;
+			}
+			else
+			{
+				target = collect ? new Object[count] : null;
+				targetOffset = 0;
+			}
+			for (int i = 0; i < count; i++)
+			{
+				if (hasFailed())
+				{
+					return;
+				}
+				final O result = mapper.map((I) batch[i]);
+				if (target != null)
+				{
+					target[targetOffset + i] = result;
+				}
+				batch[i] = null;
+			}
+			if (batches != null)
+			{
+				synchronized (batches)
+				{
+					batches.put(start, target);
+				}
+			}
+			else if (unorderedResults != null)
+			{
+				synchronized (unorderedResults)
+				{
+					unorderedResults.addAll(Arrays.asList(target));
+				}
+			}
+		}
+
+		private boolean hasFailed()
+		{
+			return failure.get() != null;
+		}
+
+		private void fail(final Throwable e)
+		{
+			failure.compareAndSet(null, e);
+		}
+
+		private void rethrowFailure()
+		{
+			final Throwable e = failure.get();
+			if (e == null)
+			{
+				return;
+			}
+			if (e instanceof Error)
+			{
+				throw (Error) e;
+			}
+			if (e instanceof Exception)
+			{
+				throw ExceptionUtils.escalate((Exception) e);
+			}
+			throw new RuntimeException(e);
+		}
+
+		@SuppressWarnings({"unchecked"})
+		private List<O> getResults()
+		{
+			if (results != null)
+			{
+				if (offset != results.length)
+				{
+					throw new ConcurrentModificationException("The source collection shrank while being " +
+							"processed");
+				}
+				return (List<O>) Arrays.asList(results);
+			}
+			if (unorderedResults != null)
+			{
+				return (List<O>) unorderedResults;
+			}
+			final List<O> list = new ArrayList<O>(offset);
+			for (final Object[] batch : batches.values())
+			{
+				for (final Object result : batch)
+				{
+					list.add((O) result);
+				}
+			}
+			return list;
+		}
+	}
+
+	private static final class VisitingMapper<T> implements Mapper<T, Object>
+	{
+		private final Visitor<? super T> visitor;
+
+		private VisitingMapper(final Visitor<? super T> visitor)
+		{
+			this.visitor = visitor;
+		}
+
+		@Override
+		public Object map(final T item) throws Exception
+		{
+			visitor.visit(item);
+			return null;
+		}
+	}
+
+	private static final class SharedExecutorHolder
+	{
+		private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(new ThreadFactory()
+		{
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable)
+			{
+				final Thread thread = new Thread(runnable, "bulk-executor-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.concurrent;
+
+import de.danielbechler.util.assertion.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A thread-safe cache that holds at most a fixed number of entries.
+ * <p/>
+ * Lookups are plain {@link ConcurrentHashMap} reads that only mark the entry as recently used. Once the cache
+ * is full, new entries replace old ones following the CLOCK (second chance) policy: a hand sweeps over all
+ * entries, clearing the mark of those that have been used since its last visit and evicting the first one that
+ * hasn't. Entries that are read frequently therefore stay cached, regardless of their hash code. Adding and
+ * removing entries is synchronized, which is fine as long as misses are much rarer than hits.
+ *
+ * @author Daniel Bechler
+ */
+public final class BoundedCache<K, V>
+{
+	private final ConcurrentMap<K, Node<K, V>> entries;
+	private final int maximumSize;
+	private final Object lock = new Object();
+
+	/** The slots the clock hand sweeps over. Guarded by <code>lock</code>. */
+	private final Node<K, V>[] ring;
+
+	/** Stack of unused slots. Guarded by <code>lock</code>. */
+	private final int[] freeSlots;
+	private int freeSlotCount;
+	private int hand;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BoundedCache(final int maximumSize)
+	{
+		this.maximumSize = Assert.greaterOrEqual(1, maximumSize, "maximumSize");
+		this.entries = new ConcurrentHashMap<K, Node<K, V>>(Math.min(maximumSize, 1 << 16));
+		this.ring = new Node[maximumSize];
+		this.freeSlots = new int[maximumSize];
+		resetFreeSlots();
+	}
+
+	private void resetFreeSlots()
+	{
+		for (int i = 0; i < maximumSize; i++)
+		{
+			freeSlots[i] = maximumSize - 1 - i;
+		}
+		freeSlotCount = maximumSize;
+	}
+
+	/** @return The cached value or <code>null</code>. */
+	public V get(final K key)
+	{
+		final Node<K, V> node = entries.get(key);
+		if (node == null)
+		{
+			return null;
+		}
+		node.markUsed();
+		return node.value;
+	}
+
+	/**
+	 * Adds the given entry, unless the key is already cached.
+	 *
+	 * @return The value that ends up being cached for the given key.
+	 */
+	public V putIfAbsent(final K key, final V value)
+	{
+		Assert.notNull(key, "key");
+		Assert.notNull(value, "value");
+		final V cached = get(key);
+		if (cached != null)
+		{
+			return cached;
+		}
+		synchronized (lock)
+		{
+			final Node<K, V> existing = entries.get(key);
+			if (existing != null)
+			{
+				return existing.value;
+			}
+			final int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : evict();
+			final Node<K, V> node = new Node<K, V>(key, value, slot);
+			ring[slot] = node;
+			entries.put(key, node);
+			return value;
+		}
+	}
+
+	/** Removes the next entry that hasn't been used since the hand passed by last time. */
+	private int evict()
+	{
+		while (true)
+		{
+			final Node<K, V> node = ring[hand];
+			final int slot = hand;
+			hand = (hand + 1) % maximumSize;
+			if (node.used)
+			{
+				node.used = false;
+			}
+			else
+			{
+				entries.remove(node.key);
+				ring[slot] = null;
+				return slot;
+			}
+		}
+	}
+
+	public void remove(final K key)
+	{
+		synchronized (lock)
+		{
+			final Node<K, V> node = entries.remove(key);
+			if (node != null)
+			{
+				ring[node.slot] = null;
+				freeSlots[freeSlotCount++] = node.slot;
+			}
+		}
+	}
+
+	public void clear()
+	{
+		synchronized (lock)
+		{
+			entries.clear();
+			Arrays.fill(ring, null);
+			resetFreeSlots();
+			hand = 0;
+		}
+	}
+
+	/** @return The approximate number of cached entries. */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	public int getMaximumSize()
+	{
+		return maximumSize;
+	}
+
+	private static final class Node<K, V>
+	{
+		private final K key;
+		private final V value;
+		private final int slot;
+		private volatile boolean used;
+
+		private Node(final K key, final V value, final int slot)
+		{
+			this.key = key;
+			this.value = value;
+			this.slot = slot;
+		}
+
+		private void markUsed()
+		{
+			// avoid writing to memory shared between cores on every read
+			if (!used)
+			{
+				used = true;
+			}
+		}
+	}
+}
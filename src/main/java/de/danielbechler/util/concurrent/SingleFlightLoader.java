@@ -0,0 +1,248 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.concurrent;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.exception.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces concurrent loads of the same key into a single computation. The first caller for a key runs the
+ * {@link Loader}, all callers arriving while it is in flight wait for it and receive the same result or
+ * exception.
+ * <p/>
+ * Without a time-to-live the result is forgotten as soon as the computation finishes. With a time-to-live,
+ * successful results are kept and handed out without locking until they expire. Failures are never kept.
+ *
+ * @author Daniel Bechler
+ */
+public final class SingleFlightLoader<K, V>
+{
+	public interface Loader<K, V>
+	{
+		V load(K key) throws Exception;
+	}
+
+	private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<K, Flight<V>>();
+	private final Loader<? super K, ? extends V> loader;
+	private final long timeToLiveNanos;
+
+	public SingleFlightLoader(final Loader<? super K, ? extends V> loader)
+	{
+		this(loader, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param loader     Computes the value for a key.
+	 * @param timeToLive How long a successfully loaded value is kept. <code>0</code> disables caching.
+	 * @param unit       The unit of <code>timeToLive</code>.
+	 */
+	public SingleFlightLoader(final Loader<? super K, ? extends V> loader,
+							  final long timeToLive,
+							  final TimeUnit unit)
+	{
+		Assert.notNull(loader, "loader");
+		Assert.greaterOrEqual(0L, timeToLive, "timeToLive");
+		Assert.notNull(unit, "unit");
+		this.loader = loader;
+		this.timeToLiveNanos = unit.toNanos(timeToLive);
+	}
+
+	/**
+	 * Returns the value for the given key, either from a cached result, by joining a computation that is
+	 * already in flight or by starting a new one.
+	 *
+	 * @throws RuntimeException If the computation failed. Checked exceptions are wrapped.
+	 */
+	public V get(final K key)
+	{
+		Assert.notNull(key, "key");
+		while (true)
+		{
+			final Flight<V> flight = flights.get(key);
+			if (flight != null)
+			{
+				if (!flight.isExpired())
+				{
+					return flight.await();
+				}
+				flights.remove(key, flight);
+			}
+			final Flight<V> newFlight = new Flight<V>(new LoadingCallable(key));
+			if (flights.putIfAbsent(key, newFlight) == null)
+			{
+				return fly(key, newFlight);
+			}
+		}
+	}
+
+	private V fly(final K key, final Flight<V> flight)
+	{
+		try
+		{
+			flight.run();
+		}
+		finally
+		{
+			if (timeToLiveNanos == 0 || flight.hasFailed())
+			{
+				flights.remove(key, flight);
+			}
+			else
+			{
+				flight.expireAfter(timeToLiveNanos);
+			}
+		}
+		return flight.await();
+	}
+
+	/** Forgets the cached result for the given key. Computations in flight are not affected. */
+	public void invalidate(final K key)
+	{
+		final Flight<V> flight = flights.get(key);
+		if (flight != null && flight.isDone())
+		{
+			flights.remove(key, flight);
+		}
+	}
+
+	public void invalidateAll()
+	{
+		for (final Map.Entry<K, Flight<V>> entry : flights.entrySet())
+		{
+			if (entry.getValue().isDone())
+			{
+				flights.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes all expired results. Expired results are otherwise only removed when their key is requested
+	 * again, so this should be called periodically when the key space is large.
+	 */
+	public void evictExpired()
+	{
+		for (final Map.Entry<K, Flight<V>> entry : flights.entrySet())
+		{
+			if (entry.getValue().isExpired())
+			{
+				flights.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/** @return The number of keys that are either in flight or cached. */
+	public int size()
+	{
+		return flights.size();
+	}
+
+	private final class LoadingCallable implements Callable<V>
+	{
+		private final K key;
+
+		private LoadingCallable(final K key)
+		{
+			this.key = key;
+		}
+
+		@Override
+		public V call() throws Exception
+		{
+			return loader.load(key);
+		}
+	}
+
+	private static final class Flight<V> extends FutureTask<V>
+	{
+		private static final long NEVER = Long.MIN_VALUE;
+
+		private volatile long expiresAt = NEVER;
+		private volatile boolean failed;
+
+		private Flight(final Callable<V> callable)
+		{
+			super(callable);
+		}
+
+		@Override
+		protected void setException(final Throwable t)
+		{
+			failed = true;
+			super.setException(t);
+		}
+
+		private boolean hasFailed()
+		{
+			return failed;
+		}
+
+		private void expireAfter(final long nanos)
+		{
+			expiresAt = System.nanoTime() + nanos;
+		}
+
+		private boolean isExpired()
+		{
+			final long expiration = expiresAt;
+			return expiration != NEVER && System.nanoTime() - expiration >= 0;
+		}
+
+		private V await()
+		{
+			boolean interrupted = false;
+			try
+			{
+				while (true)
+				{
+					try
+					{
+						return get();
+					}
+					catch (InterruptedException e)
+					{
+						// the result is shared, so a single interrupted waiter must not cancel it for everyone
+						interrupted = true;
+					}
+				}
+			}
+			catch (ExecutionException e)
+			{
+				final Throwable cause = e.getCause();
+				if (cause instanceof Error)
+				{
+					throw (Error) cause;
+				}
+				if (cause instanceof Exception)
+				{
+					throw ExceptionUtils.escalate((Exception) cause);
+				}
+				throw new RuntimeException(cause);
+			}
+			finally
+			{
+				if (interrupted)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
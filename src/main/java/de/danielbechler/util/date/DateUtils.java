@@ -16,6 +16,7 @@
 
 package de.danielbechler.util.date;
 
+import java.io.*;
 import java.text.*;
 import java.util.*;
 
@@ -61,25 +62,123 @@ public final class DateUtils
 
 	public static Date getDateFromDateTimeUTCFormat(final String dateString)
 	{
-		try
+		return new Date(parseDateTimeUTC(dateString));
+	}
+
+	public static Date getDateFromDateTimeMillisecondsUTCFormat(final String dateString)
+	{
+		return new Date(parseDateTimeMillisecondsUTC(dateString));
+	}
+
+	/**
+	 * Parses a date in the format of {@link #getDateTimeUTCFormat()}. Unlike the format itself, this method is
+	 * thread-safe and doesn't create any objects for dates in the canonical layout between the years 1583 and
+	 * 9999. Anything else is passed on to the format, so the same input is accepted.
+	 *
+	 * @return The number of milliseconds since 1970-01-01T00:00:00Z.
+	 */
+	public static long parseDateTimeUTC(final CharSequence dateString)
+	{
+		final long millis = Iso8601.parse(dateString, 0, dateString.length(), false);
+		if (millis != Iso8601.INVALID)
 		{
-			return getDateTimeUTCFormat().parse(dateString);
+			return millis;
 		}
-		catch (ParseException e)
+		return parse(getDateTimeUTCFormat(), dateString);
+	}
+
+	/**
+	 * Parses a date in the format of {@link #getDateTimeMillisecondsUTCFormat()}. See {@link
+	 * #parseDateTimeUTC(CharSequence)}.
+	 *
+	 * @return The number of milliseconds since 1970-01-01T00:00:00Z.
+	 */
+	public static long parseDateTimeMillisecondsUTC(final CharSequence dateString)
+	{
+		final long millis = Iso8601.parse(dateString, 0, dateString.length(), true);
+		if (millis != Iso8601.INVALID)
 		{
-			throw new RuntimeException(e);
+			return millis;
 		}
+		return parse(getDateTimeMillisecondsUTCFormat(), dateString);
 	}
 
-	public static Date getDateFromDateTimeMillisecondsUTCFormat(final String dateString)
+	private static long parse(final DateFormat format, final CharSequence dateString)
 	{
 		try
 		{
-			return getDateTimeMillisecondsUTCFormat().parse(dateString);
+			return format.parse(dateString.toString()).getTime();
 		}
 		catch (ParseException e)
 		{
 			throw new RuntimeException(e);
 		}
 	}
+
+	/** Appends the given date in the format of {@link #getDateTimeUTCFormat()}. */
+	public static void formatDateTimeUTC(final long millis, final Appendable target) throws IOException
+	{
+		format(millis, false, target);
+	}
+
+	/** Appends the given date in the format of {@link #getDateTimeMillisecondsUTCFormat()}. */
+	public static void formatDateTimeMillisecondsUTC(final long millis, final Appendable target) throws IOException
+	{
+		format(millis, true, target);
+	}
+
+	/**
+	 * Writes the given date in the format of {@link #getDateTimeUTCFormat()} into the given array, which needs
+	 * room for (usually) 20 characters.
+	 *
+	 * @return The offset right after the last written character.
+	 */
+	public static int formatDateTimeUTC(final long millis, final char[] target, final int offset)
+	{
+		return format(millis, false, target, offset);
+	}
+
+	/**
+	 * Writes the given date in the format of {@link #getDateTimeMillisecondsUTCFormat()} into the given array,
+	 * which needs room for (usually) 24 characters.
+	 *
+	 * @return The offset right after the last written character.
+	 */
+	public static int formatDateTimeMillisecondsUTC(final long millis, final char[] target, final int offset)
+	{
+		return format(millis, true, target, offset);
+	}
+
+	private static void format(final long millis, final boolean withMillis, final Appendable target)
+			throws IOException
+	{
+		if (Iso8601.isFormattable(millis))
+		{
+			Iso8601.format(millis, withMillis, target);
+			target.append('Z');
+		}
+		else
+		{
+			target.append(formatWithDateFormat(millis, withMillis));
+		}
+	}
+
+	private static int format(final long millis, final boolean withMillis, final char[] target, final int offset)
+	{
+		if (Iso8601.isFormattable(millis))
+		{
+			final int end = Iso8601.format(millis, withMillis, target, offset);
+			target[end] = 'Z';
+			return end + 1;
+		}
+		final String formatted = formatWithDateFormat(millis, withMillis);
+		formatted.getChars(0, formatted.length(), target, offset);
+		return offset + formatted.length();
+	}
+
+	private static String formatWithDateFormat(final long millis, final boolean withMillis)
+	{
+		final DateFormat format = withMillis ? getDateTimeMillisecondsUTCFormat() : getDateTimeUTCFormat();
+		return format.format(new Date(millis));
+	}
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import java.io.*;
+
+/**
+ * Allocation-free conversion between epoch milliseconds and the UTC date-time layouts used by {@link
+ * DateUtils} (<code>yyyy-MM-dd'T'HH:mm:ss</code>, optionally followed by <code>.SSS</code>).
+ * <p/>
+ * Only the canonical layout is handled here, for the years 1583 to 9999. Before 1583 {@link
+ * java.util.GregorianCalendar} switches to the Julian calendar, so those dates are left to {@link
+ * java.text.SimpleDateFormat}, just like anything that isn't written in the canonical layout.
+ *
+ * @author Daniel Bechler
+ */
+final class Iso8601
+{
+	/** Returned by the parse methods for input that isn't in the canonical layout. */
+	static final long INVALID = Long.MIN_VALUE;
+
+	static final int LENGTH_WITHOUT_MILLIS = 19;
+	static final int LENGTH_WITH_MILLIS = 23;
+
+	static final long MILLIS_PER_DAY = 86400000L;
+
+	private static final int MIN_YEAR = 1583;
+	private static final int MAX_YEAR = 9999;
+	private static final long MIN_MILLIS = epochDay(MIN_YEAR, 1, 1) * MILLIS_PER_DAY;
+	private static final long MAX_MILLIS = epochDay(MAX_YEAR + 1, 1, 1) * MILLIS_PER_DAY - 1;
+
+	private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+	private Iso8601()
+	{
+	}
+
+	static boolean isFormattable(final long millis)
+	{
+		return millis >= MIN_MILLIS && millis <= MAX_MILLIS;
+	}
+
+	/**
+	 * Writes the given instant without time zone designator.
+	 *
+	 * @return The offset right after the last written character.
+	 */
+	static int format(final long millis, final boolean withMillis, final char[] target, final int offset)
+	{
+		final long day = floorDiv(millis, MILLIS_PER_DAY);
+		final int date = civilDate(day);
+		final int millisOfDay = (int) (millis - day * MILLIS_PER_DAY);
+		int i = offset;
+		i = put2(date / 1000000, target, i);
+		i = put2(date / 10000 % 100, target, i);
+		target[i++] = '-';
+		i = put2(date / 100 % 100, target, i);
+		target[i++] = '-';
+		i = put2(date % 100, target, i);
+		target[i++] = 'T';
+		i = put2(millisOfDay / 3600000, target, i);
+		target[i++] = ':';
+		i = put2(millisOfDay / 60000 % 60, target, i);
+		target[i++] = ':';
+		i = put2(millisOfDay / 1000 % 60, target, i);
+		if (withMillis)
+		{
+			final int milliseconds = millisOfDay % 1000;
+			target[i++] = '.';
+			target[i++] = (char) ('0' + milliseconds / 100);
+			i = put2(milliseconds % 100, target, i);
+		}
+		return i;
+	}
+
+	/** Appends the given instant without time zone designator. */
+	static void format(final long millis, final boolean withMillis, final Appendable target) throws IOException
+	{
+		final long day = floorDiv(millis, MILLIS_PER_DAY);
+		final int date = civilDate(day);
+		final int millisOfDay = (int) (millis - day * MILLIS_PER_DAY);
+		append2(date / 1000000, target);
+		append2(date / 10000 % 100, target);
+		target.append('-');
+		append2(date / 100 % 100, target);
+		target.append('-');
+		append2(date % 100, target);
+		target.append('T');
+		append2(millisOfDay / 3600000, target);
+		target.append(':');
+		append2(millisOfDay / 60000 % 60, target);
+		target.append(':');
+		append2(millisOfDay / 1000 % 60, target);
+		if (withMillis)
+		{
+			final int milliseconds = millisOfDay % 1000;
+			target.append('.');
+			target.append((char) ('0' + milliseconds / 100));
+			append2(milliseconds % 100, target);
+		}
+	}
+
+	/** @return The civil date of the given epoch day as <code>yyyyMMdd</code> number. */
+	private static int civilDate(final long epochDay)
+	{
+		final long z = epochDay + 719468;
+		final long era = (z >= 0 ? z : z - 146096) / 146097;
+		final int dayOfEra = (int) (z - era * 146097);
+		final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		final int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+		return year * 10000 + month * 100 + day;
+	}
+
+	private static int put2(final int value, final char[] target, final int offset)
+	{
+		target[offset] = (char) ('0' + value / 10);
+		target[offset + 1] = (char) ('0' + value % 10);
+		return offset + 2;
+	}
+
+	private static void append2(final int value, final Appendable target) throws IOException
+	{
+		target.append((char) ('0' + value / 10));
+		target.append((char) ('0' + value % 10));
+	}
+
+	/**
+	 * Parses the given region, which must contain exactly the canonical layout followed by <code>'Z'</code>.
+	 *
+	 * @return The epoch milliseconds or {@link #INVALID}.
+	 */
+	static long parse(final CharSequence s, final int start, final int end, final boolean withMillis)
+	{
+		final int length = withMillis ? LENGTH_WITH_MILLIS : LENGTH_WITHOUT_MILLIS;
+		if (end - start != length + 1 || s.charAt(start + length) != 'Z')
+		{
+			return INVALID;
+		}
+		final long epochDay = parseDate(s, start);
+		final int millisOfDay = parseTime(s, start + 10, withMillis);
+		if (epochDay == INVALID || millisOfDay < 0)
+		{
+			return INVALID;
+		}
+		return epochDay * MILLIS_PER_DAY + millisOfDay;
+	}
+
+	/**
+	 * Parses the <code>yyyy-MM-dd</code> part starting at the given offset.
+	 *
+	 * @return The epoch day or {@link #INVALID}.
+	 */
+	static long parseDate(final CharSequence s, final int offset)
+	{
+		if (s.charAt(offset + 4) != '-' || s.charAt(offset + 7) != '-')
+		{
+			return INVALID;
+		}
+		final int year = digits(s, offset, 4);
+		final int month = digits(s, offset + 5, 2);
+		final int day = digits(s, offset + 8, 2);
+		if (year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+		{
+			return INVALID;
+		}
+		return epochDay(year, month, day);
+	}
+
+	/**
+	 * Parses the <code>'T'HH:mm:ss</code> part (optionally followed by <code>.SSS</code>) starting at the given
+	 * offset.
+	 *
+	 * @return The milliseconds of the day or <code>-1</code>.
+	 */
+	static int parseTime(final CharSequence s, final int offset, final boolean withMillis)
+	{
+		if (s.charAt(offset) != 'T' || s.charAt(offset + 3) != ':' || s.charAt(offset + 6) != ':')
+		{
+			return -1;
+		}
+		final int hour = digits(s, offset + 1, 2);
+		final int minute = digits(s, offset + 4, 2);
+		final int second = digits(s, offset + 7, 2);
+		int milliseconds = 0;
+		if (withMillis)
+		{
+			if (s.charAt(offset + 9) != '.')
+			{
+				return -1;
+			}
+			milliseconds = digits(s, offset + 10, 3);
+		}
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || milliseconds < 0)
+		{
+			return -1;
+		}
+		return hour * 3600000 + minute * 60000 + second * 1000 + milliseconds;
+	}
+
+	/** @return The value of the given decimal digits or a negative number, if there is a non-digit. */
+	private static int digits(final CharSequence s, final int offset, final int count)
+	{
+		int value = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final int digit = s.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+			{
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	static int daysInMonth(final int year, final int month)
+	{
+		if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)))
+		{
+			return 29;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+
+	/** @return The number of days since 1970-01-01 in the proleptic Gregorian calendar. */
+	static long epochDay(final int year, final int month, final int day)
+	{
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = (y >= 0 ? y : y - 399) / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	private static long floorDiv(final long dividend, final long divisor)
+	{
+		final long quotient = dividend / divisor;
+		return (dividend % divisor < 0) ? quotient - 1 : quotient;
+	}
+}
@@ -17,6 +17,8 @@
 package de.danielbechler.util.date;
 
 import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.collection.*;
+import de.danielbechler.util.text.*;
 
 import java.io.*;
 import java.text.*;
@@ -25,6 +27,10 @@ import java.util.concurrent.*;
 
 /**
  * Represents a time range. This class is immutable.
+ * <p/>
+ * Start and end are stored as epoch milliseconds. The {@link Date} based methods are kept for compatibility, but
+ * they have to create new instances on every call, so the <code>long</code> based ones should be preferred in
+ * hot code. The serialized form is still the one of the original {@link Date} based implementation.
  *
  * @author Daniel Bechler
  */
@@ -32,6 +38,14 @@ public final class TimeRange implements Serializable
 {
 	private static final long serialVersionUID = -871772595525048733L;
 
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("start", Date.class),
+			new ObjectStreamField("end", Date.class)
+	};
+
+	/** Arrays smaller than this aren't worth splitting up for a parallel search. */
+	private static final int PARALLEL_CHUNK_SIZE = 65536;
+
 	/**
 	 * Creates a new time range from the oldest and the newest date in the given collection.
 	 *
@@ -41,45 +55,138 @@ public final class TimeRange implements Serializable
 	 */
 	public static TimeRange from(final Iterable<Date> dates)
 	{
-		Date min = null;
-		Date max = null;
+		Assert.notNull(dates, "dates");
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		boolean empty = true;
 		for (final Date date : dates)
 		{
-			if (min == null || min.after(date))
+			final long time = date.getTime();
+			min = Math.min(min, time);
+			max = Math.max(max, time);
+			empty = false;
+		}
+		if (empty)
+		{
+			throw new IllegalArgumentException("Argument [dates] must not be empty");
+		}
+		return new TimeRange(min, max);
+	}
+
+	/**
+	 * Creates a new time range from the smallest and the largest of the given epoch milliseconds.
+	 *
+	 * @throws IllegalArgumentException If the array is empty.
+	 */
+	public static TimeRange from(final long[] millis)
+	{
+		Assert.notNull(millis, "millis");
+		if (millis.length == 0)
+		{
+			throw new IllegalArgumentException("Argument [millis] must not be empty");
+		}
+		final long[] minMax = minMax(millis, 0, millis.length);
+		return new TimeRange(minMax[0], minMax[1]);
+	}
+
+	/**
+	 * Like {@link #from(long[])}, but large arrays are split up and searched by up to <code>parallelism</code>
+	 * threads.
+	 */
+	public static TimeRange from(final long[] millis, final int parallelism)
+	{
+		Assert.notNull(millis, "millis");
+		Assert.greaterOrEqual(1, parallelism, "parallelism");
+		if (parallelism == 1 || millis.length < 2 * PARALLEL_CHUNK_SIZE)
+		{
+			return from(millis);
+		}
+		final int chunkSize = Math.max(PARALLEL_CHUNK_SIZE, (millis.length + parallelism - 1) / parallelism);
+		final List<Integer> chunks = new ArrayList<Integer>(parallelism);
+		for (int start = 0; start < millis.length; start += chunkSize)
+		{
+			chunks.add(start);
+		}
+		final List<long[]> results = BulkExecutor.create()
+				.withParallelism(parallelism)
+				.withBatchSize(1)
+				.map(chunks, new BulkExecutor.Mapper<Integer, long[]>()
+				{
+					@Override
+					public long[] map(final Integer start)
+					{
+						return minMax(millis, start, Math.min(millis.length, start + chunkSize));
+					}
+				});
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (final long[] result : results)
+		{
+			min = Math.min(min, result[0]);
+			max = Math.max(max, result[1]);
+		}
+		return new TimeRange(min, max);
+	}
+
+	private static long[] minMax(final long[] millis, final int from, final int to)
+	{
+		long min = millis[from];
+		long max = min;
+		for (int i = from + 1; i < to; i++)
+		{
+			final long value = millis[i];
+			if (value < min)
 			{
-				min = date;
+				min = value;
 			}
-			if (max == null || max.before(date))
+			else if (value > max)
 			{
-				max = date;
+				max = value;
 			}
 		}
-		return new TimeRange(min, max);
+		return new long[]{min, max};
 	}
 
-	private final Date start;
-	private final Date end;
+	/** Not final only because of {@link #readObject(ObjectInputStream)}. */
+	private transient long start;
+	private transient long end;
 
 	public TimeRange(final Date start, final Date end)
 	{
-		Assert.notNull(start, "start");
-		Assert.notNull(end, "end");
-		if (start.compareTo(end) > 0)
+		this(Assert.notNull(start, "start").getTime(), Assert.notNull(end, "end").getTime());
+	}
+
+	/** Creates a new time range from the given epoch milliseconds. */
+	public TimeRange(final long start, final long end)
+	{
+		if (start > end)
 		{
 			throw new IllegalArgumentException("The start time must be before or the same as the end time");
 		}
-		this.start = new Date(start.getTime());
-		this.end = new Date(end.getTime());
+		this.start = start;
+		this.end = end;
 	}
 
 	public Date getStart()
 	{
-		return new Date(start.getTime());
+		return new Date(start);
 	}
 
 	public Date getEnd()
 	{
-		return new Date(end.getTime());
+		return new Date(end);
+	}
+
+	/** @return The start time in epoch milliseconds. */
+	public long getStartMillis()
+	{
+		return start;
+	}
+
+	/** @return The end time in epoch milliseconds. */
+	public long getEndMillis()
+	{
+		return end;
 	}
 
 	/**
@@ -98,7 +205,7 @@ public final class TimeRange implements Serializable
 	 *
 	 * @param date The date to check.
 	 *
-	 * @return <code>true</code> if the given date lies in between start and end. Otherwise
+	 * @return <code>true</code> if the given date lies in between start and end (both inclusive). Otherwise
 	 *         <code>false</code>.
 	 */
 	public boolean includes(final Date date)
@@ -107,13 +214,26 @@ public final class TimeRange implements Serializable
 		{
 			return false;
 		}
-		return start.compareTo(date) >= 0 && end.compareTo(date) <= 0;
+		return includes(date.getTime());
+	}
+
+	/** @return <code>true</code> if the given epoch milliseconds lie in between start and end (both inclusive). */
+	public boolean includes(final long millis)
+	{
+		return start <= millis && millis <= end;
+	}
+
+	/** @return <code>true</code> if this and the given time range have at least one instant in common. */
+	public boolean overlaps(final TimeRange other)
+	{
+		Assert.notNull(other, "other");
+		return start <= other.end && other.start <= end;
 	}
 
 	/** @return The time difference in milliseconds. */
 	public long getDelta()
 	{
-		return end.getTime() - start.getTime();
+		return end - start;
 	}
 
 	@Override
@@ -130,35 +250,67 @@ public final class TimeRange implements Serializable
 
 		final TimeRange timeRange = (TimeRange) o;
 
-		if (!end.equals(timeRange.end))
-		{
-			return false;
-		}
-		if (!start.equals(timeRange.start))
-		{
-			return false;
-		}
-
-		return true;
+		return start == timeRange.start && end == timeRange.end;
 	}
 
 	@Override
 	public int hashCode()
 	{
-		int result = start.hashCode();
-		result = 31 * result + end.hashCode();
+		// same as the hash codes of the Dates this class used to hold
+		int result = (int) (start ^ (start >>> 32));
+		result = 31 * result + (int) (end ^ (end >>> 32));
 		return result;
 	}
 
+	private void writeObject(final ObjectOutputStream out) throws IOException
+	{
+		final ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("start", new Date(start));
+		fields.put("end", new Date(end));
+		out.writeFields();
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		final ObjectInputStream.GetField fields = in.readFields();
+		final Date startDate = (Date) fields.get("start", null);
+		final Date endDate = (Date) fields.get("end", null);
+		if (startDate == null || endDate == null || startDate.getTime() > endDate.getTime())
+		{
+			throw new InvalidObjectException("Invalid time range: " + startDate + " -- " + endDate);
+		}
+		start = startDate.getTime();
+		end = endDate.getTime();
+	}
+
 	@Override
 	public String toString()
 	{
-		final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ENGLISH);
-		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-		final StringBuilder builder = new StringBuilder();
-		builder.append(dateFormat.format(start));
+		final StringBuilder builder = StringBuilderCache.acquire(51);
+		appendTo(builder, start);
 		builder.append(" -- ");
-		builder.append(dateFormat.format(end));
-		return builder.toString();
+		appendTo(builder, end);
+		return StringBuilderCache.toStringAndRelease(builder);
+	}
+
+	private static void appendTo(final StringBuilder builder, final long millis)
+	{
+		if (Iso8601.isFormattable(millis))
+		{
+			try
+			{
+				Iso8601.format(millis, true, builder);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException("StringBuilders don't throw IOExceptions", e);
+			}
+		}
+		else
+		{
+			final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ENGLISH);
+			dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+			builder.append(dateFormat.format(new Date(millis)));
+		}
 	}
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import de.danielbechler.util.assertion.*;
+
+import java.util.*;
+
+/**
+ * An index of {@link TimeRange}s that finds all ranges including a point in time or overlapping another range
+ * without looking at every single one of them. Bounds are inclusive on both ends, just like in {@link
+ * TimeRange#includes(long)}.
+ * <p/>
+ * The ranges are kept in arrays sorted by start time, which are searched like a balanced binary tree whose
+ * nodes know the latest end time below them (an augmented interval tree). Subtrees that end too early or start
+ * too late are skipped, so a query takes about <code>O(log n + k)</code> for <code>k</code> results. Ranges
+ * added one by one go into a series of such arrays with sizes of increasing powers of two, which are merged as
+ * they fill up. That keeps inserts at an amortized <code>O(log n)</code>, while queries need to look at
+ * <code>O(log n)</code> arrays. Bulk loading creates a single array.
+ * <p/>
+ * This class is not thread-safe.
+ *
+ * @author Daniel Bechler
+ */
+public final class TimeRangeIndex
+{
+	/** Ordered by decreasing size. Each one is at least twice as large as the next one. */
+	private final List<Level> levels = new ArrayList<Level>();
+	private int size;
+
+	public TimeRangeIndex()
+	{
+	}
+
+	public TimeRangeIndex(final Collection<TimeRange> ranges)
+	{
+		addAll(ranges);
+	}
+
+	public void add(final TimeRange range)
+	{
+		Assert.notNull(range, "range");
+		push(new Level(new TimeRange[]{range}));
+	}
+
+	public void addAll(final Collection<TimeRange> ranges)
+	{
+		Assert.notNull(ranges, "ranges");
+		if (ranges.isEmpty())
+		{
+			return;
+		}
+		final TimeRange[] sorted = ranges.toArray(new TimeRange[ranges.size()]);
+		for (final TimeRange range : sorted)
+		{
+			Assert.notNull(range, "range");
+		}
+		Arrays.sort(sorted, START_ORDER);
+		push(new Level(sorted));
+	}
+
+	private void push(final Level level)
+	{
+		Level current = level;
+		while (!levels.isEmpty() && levels.get(levels.size() - 1).size() <= 2 * current.size())
+		{
+			current = Level.merge(levels.remove(levels.size() - 1), current);
+		}
+		levels.add(current);
+		size += level.size();
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** @return All ranges that include the given point in time, ordered by start time within each level. */
+	public List<TimeRange> including(final long millis)
+	{
+		return overlapping(millis, millis);
+	}
+
+	public List<TimeRange> including(final Date date)
+	{
+		Assert.notNull(date, "date");
+		return including(date.getTime());
+	}
+
+	/** @return All ranges that have at least one instant in common with the given one. */
+	public List<TimeRange> overlapping(final TimeRange range)
+	{
+		Assert.notNull(range, "range");
+		return overlapping(range.getStartMillis(), range.getEndMillis());
+	}
+
+	/** @return All ranges that have at least one instant in common with <code>[from, to]</code>. */
+	public List<TimeRange> overlapping(final long from, final long to)
+	{
+		final List<TimeRange> result = new ArrayList<TimeRange>();
+		for (final Level level : levels)
+		{
+			level.collectOverlapping(from, to, 0, level.size(), result);
+		}
+		return result;
+	}
+
+	/** @return Whether any range includes the given point in time. */
+	public boolean includesAny(final long millis)
+	{
+		for (final Level level : levels)
+		{
+			if (level.hasOverlapping(millis, millis, 0, level.size()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** @return All indexed ranges merged into the smallest possible set of disjoint ranges. */
+	public List<TimeRange> coalesce()
+	{
+		final List<TimeRange> ranges = new ArrayList<TimeRange>(size);
+		for (final Level level : levels)
+		{
+			ranges.addAll(Arrays.asList(level.ranges));
+		}
+		return TimeRanges.coalesce(ranges);
+	}
+
+	static final Comparator<TimeRange> START_ORDER = new Comparator<TimeRange>()
+	{
+		@Override
+		public int compare(final TimeRange a, final TimeRange b)
+		{
+			if (a.getStartMillis() != b.getStartMillis())
+			{
+				return a.getStartMillis() < b.getStartMillis() ? -1 : 1;
+			}
+			if (a.getEndMillis() != b.getEndMillis())
+			{
+				return a.getEndMillis() < b.getEndMillis() ? -1 : 1;
+			}
+			return 0;
+		}
+	};
+
+	/**
+	 * Ranges sorted by start time. The middle element of every slice <code>[from, to)</code> is the root of a
+	 * subtree covering that slice, and <code>maxEnds</code> holds the latest end time within it.
+	 */
+	private static final class Level
+	{
+		private final TimeRange[] ranges;
+		private final long[] starts;
+		private final long[] ends;
+		private final long[] maxEnds;
+
+		private Level(final TimeRange[] sortedRanges)
+		{
+			this.ranges = sortedRanges;
+			this.starts = new long[sortedRanges.length];
+			this.ends = new long[sortedRanges.length];
+			for (int i = 0; i < sortedRanges.length; i++)
+			{
+				starts[i] = sortedRanges[i].getStartMillis();
+				ends[i] = sortedRanges[i].getEndMillis();
+			}
+			this.maxEnds = new long[sortedRanges.length];
+			computeMaxEnds(0, sortedRanges.length);
+		}
+
+		private static Level merge(final Level a, final Level b)
+		{
+			final TimeRange[] merged = new TimeRange[a.size() + b.size()];
+			int i = 0;
+			int j = 0;
+			int k = 0;
+			while (i < a.size() && j < b.size())
+			{
+				merged[k++] = START_ORDER.compare(a.ranges[i], b.ranges[j]) <= 0 ? a.ranges[i++] : b.ranges[j++];
+			}
+			System.arraycopy(a.ranges, i, merged, k, a.size() - i);
+			System.arraycopy(b.ranges, j, merged, k + a.size() - i, b.size() - j);
+			return new Level(merged);
+		}
+
+		private int size()
+		{
+			return ranges.length;
+		}
+
+		private long computeMaxEnds(final int from, final int to)
+		{
+			if (from >= to)
+			{
+				return Long.MIN_VALUE;
+			}
+			final int middle = (from + to) >>> 1;
+			final long maxEnd = Math.max(ends[middle], Math.max(computeMaxEnds(from, middle),
+					computeMaxEnds(middle + 1, to)));
+			maxEnds[middle] = maxEnd;
+			return maxEnd;
+		}
+
+		private void collectOverlapping(final long from,
+										final long to,
+										final int lower,
+										final int upper,
+										final List<TimeRange> result)
+		{
+			if (lower >= upper)
+			{
+				return;
+			}
+			final int middle = (lower + upper) >>> 1;
+			if (maxEnds[middle] < from)
+			{
+				// everything in this subtree ends before the query starts
+				return;
+			}
+			collectOverlapping(from, to, lower, middle, result);
+			if (starts[middle] > to)
+			{
+				// this one and everything to the right starts after the query ends
+				return;
+			}
+			if (ends[middle] >= from)
+			{
+				result.add(ranges[middle]);
+			}
+			collectOverlapping(from, to, middle + 1, upper, result);
+		}
+
+		private boolean hasOverlapping(final long from, final long to, final int lower, final int upper)
+		{
+			if (lower >= upper)
+			{
+				return false;
+			}
+			final int middle = (lower + upper) >>> 1;
+			if (maxEnds[middle] < from)
+			{
+				return false;
+			}
+			if (hasOverlapping(from, to, lower, middle))
+			{
+				return true;
+			}
+			if (starts[middle] > to)
+			{
+				return false;
+			}
+			return ends[middle] >= from || hasOverlapping(from, to, middle + 1, upper);
+		}
+	}
+}
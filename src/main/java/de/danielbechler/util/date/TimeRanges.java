@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import de.danielbechler.util.assertion.*;
+
+import java.util.*;
+
+/**
+ * Set operations on collections of {@link TimeRange}s. The results are always sorted, disjoint ranges. Two
+ * ranges are merged when they have at least one instant in common, so <code>[1, 5]</code> and <code>[5, 9]</code>
+ * become <code>[1, 9]</code>, but <code>[1, 5]</code> and <code>[6, 9]</code> stay separate.
+ *
+ * @author Daniel Bechler
+ */
+public final class TimeRanges
+{
+	private TimeRanges()
+	{
+	}
+
+	/** @return The given ranges merged into the smallest possible set of disjoint ranges. */
+	public static List<TimeRange> coalesce(final Collection<TimeRange> ranges)
+	{
+		Assert.notNull(ranges, "ranges");
+		final TimeRange[] sorted = ranges.toArray(new TimeRange[ranges.size()]);
+		Arrays.sort(sorted, TimeRangeIndex.START_ORDER);
+		final List<TimeRange> result = new ArrayList<TimeRange>();
+		int i = 0;
+		while (i < sorted.length)
+		{
+			final TimeRange first = sorted[i++];
+			long end = first.getEndMillis();
+			TimeRange widest = first;
+			while (i < sorted.length && sorted[i].getStartMillis() <= end)
+			{
+				if (sorted[i].getEndMillis() > end)
+				{
+					end = sorted[i].getEndMillis();
+					widest = sorted[i];
+				}
+				i++;
+			}
+			// reuse existing instances where possible
+			if (widest.getStartMillis() == first.getStartMillis())
+			{
+				result.add(widest);
+			}
+			else
+			{
+				result.add(new TimeRange(first.getStartMillis(), end));
+			}
+		}
+		return result;
+	}
+
+	/** @return All instants covered by any of the given ranges. */
+	public static List<TimeRange> union(final Collection<TimeRange> a, final Collection<TimeRange> b)
+	{
+		Assert.notNull(a, "a");
+		Assert.notNull(b, "b");
+		final List<TimeRange> all = new ArrayList<TimeRange>(a.size() + b.size());
+		all.addAll(a);
+		all.addAll(b);
+		return coalesce(all);
+	}
+
+	/** @return All instants covered by both, a range of <code>a</code> and a range of <code>b</code>. */
+	public static List<TimeRange> intersection(final Collection<TimeRange> a, final Collection<TimeRange> b)
+	{
+		final List<TimeRange> left = coalesce(a);
+		final List<TimeRange> right = coalesce(b);
+		final List<TimeRange> result = new ArrayList<TimeRange>();
+		int i = 0;
+		int j = 0;
+		while (i < left.size() && j < right.size())
+		{
+			final TimeRange l = left.get(i);
+			final TimeRange r = right.get(j);
+			final long start = Math.max(l.getStartMillis(), r.getStartMillis());
+			final long end = Math.min(l.getEndMillis(), r.getEndMillis());
+			if (start <= end)
+			{
+				result.add(new TimeRange(start, end));
+			}
+			// the range that ends first can't intersect with anything else
+			if (l.getEndMillis() < r.getEndMillis())
+			{
+				i++;
+			}
+			else
+			{
+				j++;
+			}
+		}
+		return result;
+	}
+}
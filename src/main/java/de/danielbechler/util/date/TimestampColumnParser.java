@@ -0,0 +1,423 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.collection.*;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * Parses whole columns of UTC timestamps (<code>yyyy-MM-dd'T'HH:mm:ss.SSS'Z'</code> or
+ * <code>yyyy-MM-dd'T'HH:mm:ss'Z'</code>, see {@link DateUtils}) into epoch milliseconds.
+ * <p/>
+ * Values are read straight from their fixed positions and the date part of the previous row is remembered, so
+ * runs of timestamps from the same day only need the time part to be parsed. No objects are created per row
+ * and invalid rows don't throw, but are flagged in the result. Unlike {@link
+ * DateUtils#parseDateTimeMillisecondsUTC(CharSequence)} only the canonical layout (for the years 1583 to 9999)
+ * is accepted.
+ * <p/>
+ * Large columns can be split into chunks that are parsed in parallel.
+ *
+ * @author Daniel Bechler
+ */
+public final class TimestampColumnParser
+{
+	/**
+	 * The number of rows parsed by a single worker at a time. A multiple of 64, so workers never share a word of
+	 * the error bitmap.
+	 */
+	private static final int CHUNK_SIZE = 16384;
+
+	private BulkExecutor executor;
+
+	private TimestampColumnParser()
+	{
+	}
+
+	public static TimestampColumnParser create()
+	{
+		return new TimestampColumnParser();
+	}
+
+	/** @param parallelism The maximum number of threads (including the calling one) parsing a column. */
+	public TimestampColumnParser withParallelism(final int parallelism)
+	{
+		Assert.greaterOrEqual(1, parallelism, "parallelism");
+		this.executor = parallelism > 1 ? BulkExecutor.create().withParallelism(parallelism).withBatchSize(1) : null;
+		return this;
+	}
+
+	public Result parse(final CharSequence[] values)
+	{
+		Assert.notNull(values, "values");
+		return parse(Arrays.asList(values));
+	}
+
+	/** @param values Should support fast random access. */
+	public Result parse(final List<? extends CharSequence> values)
+	{
+		Assert.notNull(values, "values");
+		return parse(new ListColumn(values));
+	}
+
+	/**
+	 * Parses the remaining content of the given buffer, which contains timestamps separated by the given
+	 * delimiter (e.g. <code>'\n'</code>). An empty value after the last delimiter is ignored, and so is a
+	 * carriage return at the end of a value, so CRLF line endings work as well. The position of the buffer isn't
+	 * changed.
+	 */
+	public Result parse(final CharBuffer buffer, final char delimiter)
+	{
+		Assert.notNull(buffer, "buffer");
+		return parse(new DelimitedColumn(buffer, offsetsOf(buffer, delimiter)));
+	}
+
+	/**
+	 * Parses the remaining content of the given buffer, which contains ASCII encoded timestamps separated by the
+	 * given delimiter (e.g. <code>'\n'</code>). Empty trailing values and carriage returns are handled like in
+	 * {@link #parse(CharBuffer, char)}. The position of the buffer isn't changed.
+	 */
+	public Result parse(final ByteBuffer buffer, final byte delimiter)
+	{
+		Assert.notNull(buffer, "buffer");
+		final AsciiSequence sequence = new AsciiSequence(buffer);
+		return parse(new DelimitedColumn(sequence, offsetsOf(sequence, (char) (delimiter & 0xFF))));
+	}
+
+	/** @return The start offset of every value followed by the end offset of the last one. */
+	private static int[] offsetsOf(final CharSequence s, final char delimiter)
+	{
+		final int length = s.length();
+		int count = 0;
+		for (int i = 0; i < length; i++)
+		{
+			if (s.charAt(i) == delimiter)
+			{
+				count++;
+			}
+		}
+		final boolean trailingValue = length > 0 && s.charAt(length - 1) != delimiter;
+		final int rows = trailingValue ? count + 1 : count;
+		final int[] offsets = new int[rows + 1];
+		int row = 1;
+		for (int i = 0; i < length && row < offsets.length; i++)
+		{
+			if (s.charAt(i) == delimiter)
+			{
+				// each value ends right before its delimiter, which is where the next one starts
+				offsets[row++] = i + 1;
+			}
+		}
+		offsets[rows] = trailingValue ? length + 1 : length;
+		return offsets;
+	}
+
+	private Result parse(final Column column)
+	{
+		final int rows = column.size();
+		final Result result = new Result(rows);
+		if (executor == null || rows <= CHUNK_SIZE)
+		{
+			parseChunk(column, result, 0, rows);
+			result.countErrors();
+			return result;
+		}
+		final List<Integer> chunks = new ArrayList<Integer>(rows / CHUNK_SIZE + 1);
+		for (int start = 0; start < rows; start += CHUNK_SIZE)
+		{
+			chunks.add(start);
+		}
+		executor.forEach(chunks, new BulkExecutor.Visitor<Integer>()
+		{
+			@Override
+			public void visit(final Integer start)
+			{
+				parseChunk(column, result, start, Math.min(rows, start + CHUNK_SIZE));
+			}
+		});
+		result.countErrors();
+		return result;
+	}
+
+	private static void parseChunk(final Column column, final Result result, final int from, final int to)
+	{
+		final RowParser parser = new RowParser();
+		for (int row = from; row < to; row++)
+		{
+			final long millis = column.parse(row, parser);
+			if (millis == Iso8601.INVALID)
+			{
+				result.errors[row >>> 6] |= 1L << row;
+			}
+			else
+			{
+				result.values[row] = millis;
+			}
+		}
+	}
+
+	/** The parsed column. Invalid rows have a value of <code>0</code>. */
+	public static final class Result
+	{
+		private final long[] values;
+		private final long[] errors;
+		private int errorCount;
+
+		private Result(final int size)
+		{
+			this.values = new long[size];
+			this.errors = new long[(size + 63) >>> 6];
+		}
+
+		private void countErrors()
+		{
+			int count = 0;
+			for (final long word : errors)
+			{
+				count += Long.bitCount(word);
+			}
+			errorCount = count;
+		}
+
+		/** @return The epoch milliseconds of all rows. This is the internal array, not a copy. */
+		public long[] getValues()
+		{
+			return values;
+		}
+
+		public int size()
+		{
+			return values.length;
+		}
+
+		public long get(final int row)
+		{
+			return values[row];
+		}
+
+		public boolean isValid(final int row)
+		{
+			if (row < 0 || row >= values.length)
+			{
+				throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + values.length);
+			}
+			return (errors[row >>> 6] & (1L << row)) == 0;
+		}
+
+		public int getErrorCount()
+		{
+			return errorCount;
+		}
+
+		/** @return The first invalid row at or after the given one or <code>-1</code>, if there is none. */
+		public int nextInvalidRow(final int fromRow)
+		{
+			int index = fromRow >>> 6;
+			if (fromRow < 0 || index >= errors.length)
+			{
+				return -1;
+			}
+			long word = errors[index] & (-1L << fromRow);
+			while (word == 0)
+			{
+				if (++index == errors.length)
+				{
+					return -1;
+				}
+				word = errors[index];
+			}
+			return (index << 6) + Long.numberOfTrailingZeros(word);
+		}
+	}
+
+	/** Parses single timestamps, reusing the epoch day of the previous one if it has the same date. */
+	private static final class RowParser
+	{
+		private final char[] cachedDate = new char[10];
+		private long cachedEpochDay = Iso8601.INVALID;
+
+		private long parse(final CharSequence s, final int start, final int end)
+		{
+			final int length = end - start;
+			final boolean withMillis;
+			if (length == Iso8601.LENGTH_WITH_MILLIS + 1)
+			{
+				withMillis = true;
+			}
+			else if (length == Iso8601.LENGTH_WITHOUT_MILLIS + 1)
+			{
+				withMillis = false;
+			}
+			else
+			{
+				return Iso8601.INVALID;
+			}
+			if (s.charAt(end - 1) != 'Z')
+			{
+				return Iso8601.INVALID;
+			}
+			final long epochDay = epochDay(s, start);
+			final int millisOfDay = Iso8601.parseTime(s, start + 10, withMillis);
+			if (epochDay == Iso8601.INVALID || millisOfDay < 0)
+			{
+				return Iso8601.INVALID;
+			}
+			return epochDay * Iso8601.MILLIS_PER_DAY + millisOfDay;
+		}
+
+		private long epochDay(final CharSequence s, final int start)
+		{
+			if (cachedEpochDay != Iso8601.INVALID && isCachedDate(s, start))
+			{
+				return cachedEpochDay;
+			}
+			final long epochDay = Iso8601.parseDate(s, start);
+			if (epochDay != Iso8601.INVALID)
+			{
+				for (int i = 0; i < cachedDate.length; i++)
+				{
+					cachedDate[i] = s.charAt(start + i);
+				}
+				cachedEpochDay = epochDay;
+			}
+			return epochDay;
+		}
+
+		private boolean isCachedDate(final CharSequence s, final int start)
+		{
+			for (int i = cachedDate.length - 1; i >= 0; i--)
+			{
+				if (s.charAt(start + i) != cachedDate[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private interface Column
+	{
+		int size();
+
+		/** @return The epoch milliseconds or {@link Iso8601#INVALID}. */
+		long parse(int row, RowParser parser);
+	}
+
+	private static final class ListColumn implements Column
+	{
+		private final List<? extends CharSequence> values;
+
+		private ListColumn(final List<? extends CharSequence> values)
+		{
+			this.values = values;
+		}
+
+		@Override
+		public int size()
+		{
+			return values.size();
+		}
+
+		@Override
+		public long parse(final int row, final RowParser parser)
+		{
+			final CharSequence value = values.get(row);
+			if (value == null)
+			{
+				return Iso8601.INVALID;
+			}
+			return parser.parse(value, 0, value.length());
+		}
+	}
+
+	private static final class DelimitedColumn implements Column
+	{
+		private final CharSequence source;
+		private final int[] offsets;
+
+		private DelimitedColumn(final CharSequence source, final int[] offsets)
+		{
+			this.source = source;
+			this.offsets = offsets;
+		}
+
+		@Override
+		public int size()
+		{
+			return offsets.length - 1;
+		}
+
+		@Override
+		public long parse(final int row, final RowParser parser)
+		{
+			final int start = offsets[row];
+			int end = offsets[row + 1] - 1;
+			if (end > start && source.charAt(end - 1) == '\r')
+			{
+				end--;
+			}
+			return parser.parse(source, start, end);
+		}
+	}
+
+	/** A read-only view of the remaining bytes of a buffer, using absolute reads only. */
+	private static final class AsciiSequence implements CharSequence
+	{
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+
+		private AsciiSequence(final ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+			this.offset = buffer.position();
+			this.length = buffer.remaining();
+		}
+
+		@Override
+		public int length()
+		{
+			return length;
+		}
+
+		@Override
+		public char charAt(final int index)
+		{
+			return (char) (buffer.get(offset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end)
+		{
+			final StringBuilder sb = new StringBuilder(end - start);
+			for (int i = start; i < end; i++)
+			{
+				sb.append(charAt(i));
+			}
+			return sb;
+		}
+
+		@Override
+		public String toString()
+		{
+			return subSequence(0, length).toString();
+		}
+	}
+}
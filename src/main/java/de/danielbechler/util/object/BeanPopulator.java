@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.assertion.*;
+
+import java.util.*;
+
+/**
+ * Populates beans from rows of column values (e.g. database results). Column names are mapped to writable
+ * properties via {@link BeanProperties#accessorForColumn(Class, String)} once, when the populator is created,
+ * so populating a row only means invoking the setters. Columns without a matching property are ignored.
+ * <p/>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Daniel Bechler
+ */
+public final class BeanPopulator<T>
+{
+	private final Instantiator<T> instantiator;
+	private final PropertyAccessor[] accessors;
+
+	public BeanPopulator(final Class<T> type, final String... columnNames)
+	{
+		Assert.notNull(type, "type");
+		Assert.notNull(columnNames, "columnNames");
+		this.instantiator = ClassUtils.instantiatorOf(type);
+		this.accessors = new PropertyAccessor[columnNames.length];
+		for (int i = 0; i < columnNames.length; i++)
+		{
+			final PropertyAccessor accessor = BeanProperties.accessorForColumn(type, columnNames[i]);
+			if (accessor != null && accessor.isWritable())
+			{
+				accessors[i] = accessor;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new bean and populates it with the given row.
+	 *
+	 * @param row The column values, in the order of the column names given to the constructor.
+	 *
+	 * @throws IllegalStateException If the bean type doesn't have a public default constructor.
+	 */
+	public T populate(final Object[] row)
+	{
+		final T bean = instantiator.newInstance();
+		if (bean == null)
+		{
+			throw new IllegalStateException("Unable to instantiate bean: no public default constructor");
+		}
+		return populate(bean, row);
+	}
+
+	/** Populates the given bean with the given row. */
+	public T populate(final T bean, final Object[] row)
+	{
+		Assert.notNull(bean, "bean");
+		Assert.notNull(row, "row");
+		final int columns = Math.min(row.length, accessors.length);
+		for (int i = 0; i < columns; i++)
+		{
+			final PropertyAccessor accessor = accessors[i];
+			if (accessor != null)
+			{
+				accessor.set(bean, row[i]);
+			}
+		}
+		return bean;
+	}
+
+	/** @return A new bean for every given row, in the same order. */
+	public List<T> populateAll(final Collection<Object[]> rows)
+	{
+		Assert.notNull(rows, "rows");
+		final List<T> beans = new ArrayList<T>(rows.size());
+		for (final Object[] row : rows)
+		{
+			beans.add(populate(row));
+		}
+		return beans;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.text.*;
+
+import java.beans.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Resolves the getters and setters of bean properties once per class and caches them as {@link
+ * PropertyAccessor PropertyAccessors}.
+ *
+ * @author Daniel Bechler
+ */
+public final class BeanProperties
+{
+	private static final ClassCache<Map<String, PropertyAccessor>> ACCESSORS =
+			new ClassCache<Map<String, PropertyAccessor>>(true)
+			{
+				@Override
+				protected Map<String, PropertyAccessor> compute(final Class<?> type)
+				{
+					return resolveAccessors(type);
+				}
+			};
+
+	private BeanProperties()
+	{
+	}
+
+	/** @return The accessor for the given property or <code>null</code>, if the type doesn't have it. */
+	public static PropertyAccessor accessorFor(final Class<?> type, final String propertyName)
+	{
+		Assert.notNull(type, "type");
+		return ACCESSORS.get(type).get(propertyName);
+	}
+
+	/**
+	 * Same as {@link #accessorFor(Class, String)}, but with the name of a database column, which gets converted
+	 * via {@link StringUtils#toPropertyExpression(String)}.
+	 */
+	public static PropertyAccessor accessorForColumn(final Class<?> type, final String columnName)
+	{
+		Assert.notNull(columnName, "columnName");
+		return accessorFor(type, StringUtils.toPropertyExpression(columnName));
+	}
+
+	/** @return All accessors of the given type, keyed by property name. */
+	public static Map<String, PropertyAccessor> accessorsOf(final Class<?> type)
+	{
+		Assert.notNull(type, "type");
+		return ACCESSORS.get(type);
+	}
+
+	private static Map<String, PropertyAccessor> resolveAccessors(final Class<?> type)
+	{
+		final Map<String, Method> getters = new HashMap<String, Method>();
+		final Map<String, List<Method>> setters = new HashMap<String, List<Method>>();
+		for (final Method method : type.getMethods())
+		{
+			if (Modifier.isStatic(method.getModifiers()) || method.isBridge())
+			{
+				continue;
+			}
+			final String methodName = method.getName();
+			final Class<?>[] parameterTypes = method.getParameterTypes();
+			if (parameterTypes.length == 0 && method.getReturnType() != void.class)
+			{
+				if (methodName.startsWith("get") && methodName.length() > 3 && !methodName.equals("getClass"))
+				{
+					final String propertyName = Introspector.decapitalize(methodName.substring(3));
+					// isX wins over getX like with java.beans.Introspector, no matter which one comes first
+					if (!getters.containsKey(propertyName))
+					{
+						getters.put(propertyName, method);
+					}
+				}
+				else if (methodName.startsWith("is") && methodName.length() > 2 &&
+						method.getReturnType() == boolean.class)
+				{
+					getters.put(Introspector.decapitalize(methodName.substring(2)), method);
+				}
+			}
+			else if (parameterTypes.length == 1 && methodName.startsWith("set") && methodName.length() > 3)
+			{
+				final String propertyName = Introspector.decapitalize(methodName.substring(3));
+				List<Method> candidates = setters.get(propertyName);
+				if (candidates == null)
+				{
+					candidates = new ArrayList<Method>(1);
+					setters.put(propertyName, candidates);
+				}
+				candidates.add(method);
+			}
+		}
+
+		final Set<String> propertyNames = new TreeSet<String>(getters.keySet());
+		propertyNames.addAll(setters.keySet());
+		final Map<String, PropertyAccessor> accessors = new HashMap<String, PropertyAccessor>();
+		for (final String propertyName : propertyNames)
+		{
+			final Method getter = getters.get(propertyName);
+			final Method setter = selectSetter(setters.get(propertyName), getter);
+			if (getter == null && setter == null)
+			{
+				continue;
+			}
+			final Class<?> propertyType = getter != null ? getter.getReturnType() : setter.getParameterTypes()[0];
+			accessors.put(propertyName, new PropertyAccessor(propertyName, propertyType, getter, setter));
+		}
+		return Collections.unmodifiableMap(accessors);
+	}
+
+	/** Picks the setter matching the getter's type, if there are overloads. */
+	private static Method selectSetter(final List<Method> candidates, final Method getter)
+	{
+		if (candidates == null)
+		{
+			return null;
+		}
+		if (getter != null)
+		{
+			for (final Method candidate : candidates)
+			{
+				if (candidate.getParameterTypes()[0] == getter.getReturnType())
+				{
+					return candidate;
+				}
+			}
+			return null;
+		}
+		return candidates.size() == 1 ? candidates.get(0) : null;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import java.lang.ref.*;
+import java.util.concurrent.*;
+
+/**
+ * A thread-safe cache of values computed per class, which doesn't keep classes (and thereby their class
+ * loaders) from being unloaded.
+ * <p/>
+ * Classes of the bootstrap class loader can never be unloaded, so they are kept in a plain map, which makes
+ * lookups for JDK types allocation-free. All other classes are referenced weakly. Values that reference their
+ * class (e.g. a {@link java.lang.reflect.Constructor}) would pin it nonetheless, so such caches need to be
+ * created with <code>softValues</code>, which lets the garbage collector reclaim them under memory pressure.
+ *
+ * @author Daniel Bechler
+ */
+abstract class ClassCache<V>
+{
+	private final ConcurrentMap<Class<?>, V> bootstrapValues = new ConcurrentHashMap<Class<?>, V>();
+	private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+	private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<Class<?>>();
+	private final boolean softValues;
+
+	protected ClassCache(final boolean softValues)
+	{
+		this.softValues = softValues;
+	}
+
+	/** Computes the value for the given class. May be called concurrently for the same class. */
+	protected abstract V compute(final Class<?> type);
+
+	@SuppressWarnings({"unchecked"})
+	public final V get(final Class<?> type)
+	{
+		if (type.getClassLoader() == null)
+		{
+			final V value = bootstrapValues.get(type);
+			if (value != null)
+			{
+				return value;
+			}
+			final V newValue = compute(type);
+			final V previous = bootstrapValues.putIfAbsent(type, newValue);
+			return previous != null ? previous : newValue;
+		}
+		final Object stored = values.get(new LookupKey(type));
+		if (stored != null)
+		{
+			final V value = softValues ? ((SoftReference<V>) stored).get() : (V) stored;
+			if (value != null)
+			{
+				return value;
+			}
+		}
+		expungeStaleEntries();
+		final V newValue = compute(type);
+		values.put(new WeakKey(type, queue), softValues ? new SoftReference<V>(newValue) : newValue);
+		return newValue;
+	}
+
+	private void expungeStaleEntries()
+	{
+		Reference<? extends Class<?>> reference = queue.poll();
+		while (reference != null)
+		{
+			values.remove(reference);
+			reference = queue.poll();
+		}
+	}
+
+	private static final class WeakKey extends WeakReference<Class<?>>
+	{
+		private final int hashCode;
+
+		private WeakKey(final Class<?> type, final ReferenceQueue<Class<?>> queue)
+		{
+			super(type, queue);
+			this.hashCode = System.identityHashCode(type);
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (this == o)
+			{
+				return true;
+			}
+			final Class<?> type = get();
+			if (type == null)
+			{
+				return false;
+			}
+			if (o instanceof LookupKey)
+			{
+				return type == ((LookupKey) o).type;
+			}
+			return o instanceof WeakKey && type == ((WeakKey) o).get();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+
+	private static final class LookupKey
+	{
+		private final Class<?> type;
+
+		private LookupKey(final Class<?> type)
+		{
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (o instanceof WeakKey)
+			{
+				return o.equals(this);
+			}
+			return o instanceof LookupKey && ((LookupKey) o).type == type;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(type);
+		}
+	}
+}
@@ -18,6 +18,7 @@ package de.danielbechler.util.object;
 
 import org.slf4j.*;
 
+import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
 
@@ -26,47 +27,118 @@ public final class ClassUtils
 {
 	private static final Logger logger = LoggerFactory.getLogger(ClassUtils.class);
 
+	private static final ClassCache<TypeCategory> TYPE_CATEGORIES = new ClassCache<TypeCategory>(false)
+	{
+		@Override
+		protected TypeCategory compute(final Class<?> type)
+		{
+			return categorize(type);
+		}
+	};
+
+	private static final ClassCache<Instantiator<?>> INSTANTIATORS = new ClassCache<Instantiator<?>>(true)
+	{
+		@Override
+		protected Instantiator<?> compute(final Class<?> type)
+		{
+			return createInstantiator(type);
+		}
+	};
+
 	private ClassUtils()
 	{
 	}
 
 	public static boolean isSimpleType(final Class<?> clazz)
 	{
-		return clazz.isPrimitive() ||
-				clazz.equals(Boolean.class) || clazz.equals(boolean.class) ||
-				clazz.equals(Byte.class) || clazz.equals(byte.class) ||
-				clazz.equals(Character.class) || clazz.equals(char.class) ||
-				clazz.equals(Double.class) || clazz.equals(double.class) ||
-				clazz.equals(Float.class) || clazz.equals(float.class) ||
-				clazz.equals(Integer.class) || clazz.equals(int.class) ||
-				clazz.equals(Long.class) || clazz.equals(long.class) ||
-				clazz.equals(Short.class) || clazz.equals(short.class) ||
-				clazz.isEnum() ||
-				CharSequence.class.isAssignableFrom(clazz) ||
-				Number.class.isAssignableFrom(clazz) ||
-				Date.class.isAssignableFrom(clazz) ||
+		return getTypeCategory(clazz).isSimple();
+	}
+
+	/**
+	 * Determines the category of the given type. The result is cached per class, so callers that walk
+	 * object graphs can branch on it once per type instead of once per value.
+	 */
+	public static TypeCategory getTypeCategory(final Class<?> clazz)
+	{
+		return TYPE_CATEGORIES.get(clazz);
+	}
+
+	private static TypeCategory categorize(final Class<?> clazz)
+	{
+		if (clazz.isPrimitive())
+		{
+			return TypeCategory.PRIMITIVE;
+		}
+		if (clazz.equals(Boolean.class) ||
+				clazz.equals(Byte.class) ||
+				clazz.equals(Character.class) ||
+				clazz.equals(Double.class) ||
+				clazz.equals(Float.class) ||
+				clazz.equals(Integer.class) ||
+				clazz.equals(Long.class) ||
+				clazz.equals(Short.class))
+		{
+			return TypeCategory.BOXED;
+		}
+		if (clazz.isEnum())
+		{
+			return TypeCategory.ENUM;
+		}
+		if (CharSequence.class.isAssignableFrom(clazz))
+		{
+			return TypeCategory.TEXT;
+		}
+		if (Date.class.isAssignableFrom(clazz))
+		{
+			return TypeCategory.TEMPORAL;
+		}
+		if (Number.class.isAssignableFrom(clazz) ||
 				clazz.equals(URI.class) ||
 				clazz.equals(URL.class) ||
 				clazz.equals(Locale.class) ||
-				clazz.equals(Class.class);
+				clazz.equals(Class.class))
+		{
+			return TypeCategory.VALUE;
+		}
+		if (clazz.isArray() || Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz))
+		{
+			return TypeCategory.CONTAINER;
+		}
+		return TypeCategory.BEAN;
 	}
 
 	public static <T> T freshInstanceOf(final Class<T> clazz)
+	{
+		return instantiatorOf(clazz).newInstance();
+	}
+
+	/**
+	 * Returns a cached {@link Instantiator} for the public default constructor of the given type. Types without
+	 * such a constructor get an instantiator that always returns <code>null</code>, so looking them up again
+	 * costs neither an exception nor another log message.
+	 */
+	@SuppressWarnings({"unchecked"})
+	public static <T> Instantiator<T> instantiatorOf(final Class<T> clazz)
+	{
+		return (Instantiator<T>) INSTANTIATORS.get(clazz);
+	}
+
+	private static Instantiator<?> createInstantiator(final Class<?> clazz)
 	{
 		try
 		{
-			return clazz.getConstructor().newInstance();
+			return new ConstructorInstantiator<Object>(clazz.getConstructor());
 		}
 		catch (NoSuchMethodException e)
 		{
 			logger.warn("Couldn't find default constructor of type {}. Assuming 'null' is default.",
 					clazz.getName());
+			return NullInstantiator.INSTANCE;
 		}
-		catch (Exception e)
+		catch (SecurityException e)
 		{
 			throw new RuntimeException(e);
 		}
-		return null;
 	}
 
 	public static Set<Class<?>> typesOf(final Object... values)
@@ -81,4 +153,38 @@ public final class ClassUtils
 		}
 		return types;
 	}
+
+	private static final class ConstructorInstantiator<T> implements Instantiator<T>
+	{
+		private final Constructor<? extends T> constructor;
+
+		private ConstructorInstantiator(final Constructor<? extends T> constructor)
+		{
+			this.constructor = constructor;
+		}
+
+		@Override
+		public T newInstance()
+		{
+			try
+			{
+				return constructor.newInstance();
+			}
+			catch (Exception e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static final class NullInstantiator implements Instantiator<Object>
+	{
+		private static final NullInstantiator INSTANCE = new NullInstantiator();
+
+		@Override
+		public Object newInstance()
+		{
+			return null;
+		}
+	}
 }
@@ -0,0 +1,606 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.exception.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.math.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.regex.*;
+
+/**
+ * Creates deep copies of object graphs without going through serialization.
+ * <p/>
+ * For every class a copy plan is built once and cached: which fields to copy and how. Boxed primitives,
+ * strings, enum constants (even those with a body) and other immutable JDK types like {@link BigDecimal},
+ * {@link UUID} or the <code>java.time</code> classes are shared instead of copied. Other numbers and character
+ * sequences may be mutable, so they are copied like any other object. Dates, string builders and atomic
+ * numbers are copied directly. Primitive arrays are copied in bulk. Enum sets and maps are cloned, other
+ * collections and maps are recreated with copies of their elements. If their class can't be instantiated
+ * reflectively (like most of the JDK's internal implementations), a {@link LinkedHashSet}, {@link ArrayList}
+ * or {@link LinkedHashMap} takes its place. Sorted sets and maps keep their class and comparator, so they need
+ * a constructor taking a {@link Comparator} or a public <code>clone()</code> method. Beans are copied field by
+ * field, which requires a default constructor (it doesn't need to be public) and access to the fields. Shared
+ * references and cycles are preserved.
+ *
+ * @author Daniel Bechler
+ */
+public final class DeepCopier
+{
+	private static final ClassCache<CopyPlan> PLANS = new ClassCache<CopyPlan>(true)
+	{
+		@Override
+		protected CopyPlan compute(final Class<?> type)
+		{
+			return createPlan(type);
+		}
+	};
+
+	/**
+	 * Immutable JDK types besides the boxed primitives. Only exact matches count, since subclasses (e.g. of
+	 * {@link BigDecimal}) may add mutable state.
+	 */
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+			String.class, BigInteger.class, BigDecimal.class, URI.class, URL.class, Locale.class, Class.class,
+			UUID.class, Currency.class, Pattern.class, File.class, StackTraceElement.class));
+
+	/** Immutable JDK types whose instances are of internal subclasses. */
+	private static final Class<?>[] IMMUTABLE_BASE_TYPES = {Enum.class, Charset.class, InetAddress.class};
+
+	private DeepCopier()
+	{
+	}
+
+	/**
+	 * @return A deep copy of the given object or <code>null</code>, if the given object was <code>null</code>.
+	 *
+	 * @throws IllegalArgumentException If the graph contains an object that can't be copied, e.g. a bean
+	 *                                  without default constructor.
+	 */
+	@SuppressWarnings({"unchecked"})
+	public static <T> T copy(final T object)
+	{
+		return (T) copy(object, new IdentityHashMap<Object, Object>());
+	}
+
+	private static Object copy(final Object object, final Map<Object, Object> copies)
+	{
+		if (object == null)
+		{
+			return null;
+		}
+		final CopyPlan plan = PLANS.get(object.getClass());
+		if (plan == SharingPlan.INSTANCE)
+		{
+			return object;
+		}
+		final Object existingCopy = copies.get(object);
+		if (existingCopy != null)
+		{
+			return existingCopy;
+		}
+		return plan.copy(object, copies);
+	}
+
+	private static CopyPlan createPlan(final Class<?> type)
+	{
+		final TypeCategory category = ClassUtils.getTypeCategory(type);
+		if (category == TypeCategory.TEMPORAL)
+		{
+			return DatePlan.INSTANCE;
+		}
+		if (type == StringBuilder.class || type == StringBuffer.class)
+		{
+			return TextBuilderPlan.INSTANCE;
+		}
+		if (category == TypeCategory.PRIMITIVE || category == TypeCategory.BOXED || isImmutable(type))
+		{
+			return SharingPlan.INSTANCE;
+		}
+		if (type == AtomicInteger.class || type == AtomicLong.class)
+		{
+			return AtomicNumberPlan.INSTANCE;
+		}
+		if (type.isArray())
+		{
+			if (type.getComponentType().isPrimitive())
+			{
+				return PrimitiveArrayPlan.INSTANCE;
+			}
+			return ObjectArrayPlan.INSTANCE;
+		}
+		if (EnumSet.class.isAssignableFrom(type))
+		{
+			return EnumSetPlan.INSTANCE;
+		}
+		if (type == EnumMap.class)
+		{
+			return EnumMapPlan.INSTANCE;
+		}
+		if (Collection.class.isAssignableFrom(type))
+		{
+			return new CollectionPlan(type);
+		}
+		if (Map.class.isAssignableFrom(type))
+		{
+			return new MapPlan(type);
+		}
+		return new BeanPlan(type);
+	}
+
+	private static boolean isImmutable(final Class<?> type)
+	{
+		if (IMMUTABLE_TYPES.contains(type) || type.getName().startsWith("java.time."))
+		{
+			return true;
+		}
+		for (final Class<?> baseType : IMMUTABLE_BASE_TYPES)
+		{
+			if (baseType.isAssignableFrom(type))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private interface CopyPlan
+	{
+		/** Creates the copy and registers it in <code>copies</code> before copying any referenced objects. */
+		Object copy(Object object, Map<Object, Object> copies);
+	}
+
+	private static final class SharingPlan implements CopyPlan
+	{
+		private static final SharingPlan INSTANCE = new SharingPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			return object;
+		}
+	}
+
+	private static final class DatePlan implements CopyPlan
+	{
+		private static final DatePlan INSTANCE = new DatePlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Object copy = ((Date) object).clone();
+			copies.put(object, copy);
+			return copy;
+		}
+	}
+
+	private static final class TextBuilderPlan implements CopyPlan
+	{
+		private static final TextBuilderPlan INSTANCE = new TextBuilderPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Object copy;
+			if (object instanceof StringBuilder)
+			{
+				copy = new StringBuilder((StringBuilder) object);
+			}
+			else
+			{
+				copy = new StringBuffer((StringBuffer) object);
+			}
+			copies.put(object, copy);
+			return copy;
+		}
+	}
+
+	private static final class AtomicNumberPlan implements CopyPlan
+	{
+		private static final AtomicNumberPlan INSTANCE = new AtomicNumberPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Object copy;
+			if (object instanceof AtomicInteger)
+			{
+				copy = new AtomicInteger(((AtomicInteger) object).get());
+			}
+			else
+			{
+				copy = new AtomicLong(((AtomicLong) object).get());
+			}
+			copies.put(object, copy);
+			return copy;
+		}
+	}
+
+	private static final class PrimitiveArrayPlan implements CopyPlan
+	{
+		private static final PrimitiveArrayPlan INSTANCE = new PrimitiveArrayPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final int length = Array.getLength(object);
+			final Object copy = Array.newInstance(object.getClass().getComponentType(), length);
+			System.arraycopy(object, 0, copy, 0, length);
+			copies.put(object, copy);
+			return copy;
+		}
+	}
+
+	private static final class ObjectArrayPlan implements CopyPlan
+	{
+		private static final ObjectArrayPlan INSTANCE = new ObjectArrayPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Object[] array = (Object[]) object;
+			final Object[] copy = (Object[]) Array.newInstance(array.getClass().getComponentType(), array.length);
+			copies.put(object, copy);
+			for (int i = 0; i < array.length; i++)
+			{
+				copy[i] = DeepCopier.copy(array[i], copies);
+			}
+			return copy;
+		}
+	}
+
+	/** Enum constants are shared, so a shallow copy is all it takes. */
+	private static final class EnumSetPlan implements CopyPlan
+	{
+		private static final EnumSetPlan INSTANCE = new EnumSetPlan();
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Object copy = ((EnumSet<?>) object).clone();
+			copies.put(object, copy);
+			return copy;
+		}
+	}
+
+	private static final class EnumMapPlan implements CopyPlan
+	{
+		private static final EnumMapPlan INSTANCE = new EnumMapPlan();
+
+		@Override
+		@SuppressWarnings({"unchecked"})
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Map<Object, Object> copy = (Map<Object, Object>) ((EnumMap<?, ?>) object).clone();
+			copies.put(object, copy);
+			for (final Map.Entry<Object, Object> entry : copy.entrySet())
+			{
+				entry.setValue(DeepCopier.copy(entry.getValue(), copies));
+			}
+			return copy;
+		}
+	}
+
+	private static final class CollectionPlan implements CopyPlan
+	{
+		private final Constructor<?> constructor;
+		private final SortedFactory sortedFactory;
+
+		private CollectionPlan(final Class<?> type)
+		{
+			if (SortedSet.class.isAssignableFrom(type))
+			{
+				this.constructor = null;
+				this.sortedFactory = new SortedFactory(type);
+			}
+			else
+			{
+				this.constructor = constructorOf(type);
+				this.sortedFactory = null;
+			}
+		}
+
+		@Override
+		@SuppressWarnings({"unchecked"})
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Collection<Object> collection = (Collection<Object>) object;
+			final Collection<Object> copy;
+			if (sortedFactory != null)
+			{
+				copy = (Collection<Object>) sortedFactory.newEmptyInstance(object,
+						((SortedSet<?>) collection).comparator());
+			}
+			else if (constructor != null)
+			{
+				copy = (Collection<Object>) newInstance(constructor);
+			}
+			else if (collection instanceof Set)
+			{
+				copy = new LinkedHashSet<Object>(collection.size());
+			}
+			else
+			{
+				copy = new ArrayList<Object>(collection.size());
+			}
+			copies.put(object, copy);
+			for (final Object element : collection)
+			{
+				copy.add(DeepCopier.copy(element, copies));
+			}
+			return copy;
+		}
+	}
+
+	private static final class MapPlan implements CopyPlan
+	{
+		private final Constructor<?> constructor;
+		private final SortedFactory sortedFactory;
+
+		private MapPlan(final Class<?> type)
+		{
+			if (SortedMap.class.isAssignableFrom(type))
+			{
+				this.constructor = null;
+				this.sortedFactory = new SortedFactory(type);
+			}
+			else
+			{
+				this.constructor = constructorOf(type);
+				this.sortedFactory = null;
+			}
+		}
+
+		@Override
+		@SuppressWarnings({"unchecked"})
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			final Map<Object, Object> map = (Map<Object, Object>) object;
+			final Map<Object, Object> copy;
+			if (sortedFactory != null)
+			{
+				copy = (Map<Object, Object>) sortedFactory.newEmptyInstance(object,
+						((SortedMap<?, ?>) map).comparator());
+			}
+			else if (constructor != null)
+			{
+				copy = (Map<Object, Object>) newInstance(constructor);
+			}
+			else
+			{
+				copy = new LinkedHashMap<Object, Object>(map.size());
+			}
+			copies.put(object, copy);
+			for (final Map.Entry<Object, Object> entry : map.entrySet())
+			{
+				copy.put(DeepCopier.copy(entry.getKey(), copies), DeepCopier.copy(entry.getValue(), copies));
+			}
+			return copy;
+		}
+	}
+
+	/**
+	 * Creates empty sorted sets and maps of the same class and with the same comparator as the original, since
+	 * fields may be declared with their concrete type (e.g. {@link java.util.concurrent.ConcurrentSkipListMap}).
+	 */
+	private static final class SortedFactory
+	{
+		private final Class<?> type;
+		private final Constructor<?> comparatorConstructor;
+		private final Method cloneMethod;
+
+		private SortedFactory(final Class<?> type)
+		{
+			this.type = type;
+			this.comparatorConstructor = constructorOf(type, Comparator.class);
+			this.cloneMethod = comparatorConstructor == null ? publicCloneMethodOf(type) : null;
+		}
+
+		private Object newEmptyInstance(final Object original, final Comparator<?> comparator)
+		{
+			if (comparatorConstructor != null)
+			{
+				return newInstance(comparatorConstructor, comparator);
+			}
+			if (cloneMethod == null)
+			{
+				throw new IllegalArgumentException("Unable to copy instances of " + type.getName() +
+						": neither a constructor taking a Comparator nor a public clone() method");
+			}
+			final Object clone = invoke(cloneMethod, original);
+			if (clone instanceof Map)
+			{
+				((Map<?, ?>) clone).clear();
+			}
+			else
+			{
+				((Collection<?>) clone).clear();
+			}
+			return clone;
+		}
+
+		private static Method publicCloneMethodOf(final Class<?> type)
+		{
+			try
+			{
+				final Method method = type.getMethod("clone");
+				method.setAccessible(true);
+				return method;
+			}
+			catch (NoSuchMethodException e)
+			{
+				return null;
+			}
+			catch (RuntimeException e)
+			{
+				// a SecurityException or, with the Java module system, an InaccessibleObjectException
+				return null;
+			}
+		}
+	}
+
+	private static final class BeanPlan implements CopyPlan
+	{
+		private final Class<?> type;
+		private final Constructor<?> constructor;
+		private final Field[] primitiveFields;
+		private final Field[] referenceFields;
+		private final RuntimeException accessFailure;
+
+		private BeanPlan(final Class<?> type)
+		{
+			this.type = type;
+			this.constructor = constructorOf(type);
+			final List<Field> primitives = new ArrayList<Field>();
+			final List<Field> references = new ArrayList<Field>();
+			RuntimeException failure = null;
+			for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+			{
+				for (final Field field : current.getDeclaredFields())
+				{
+					if (Modifier.isStatic(field.getModifiers()))
+					{
+						continue;
+					}
+					try
+					{
+						field.setAccessible(true);
+					}
+					catch (RuntimeException e)
+					{
+						// a SecurityException or, with the Java module system, an InaccessibleObjectException
+						if (failure == null)
+						{
+							failure = new IllegalArgumentException("Unable to copy instances of " + type.getName() +
+									": field " + current.getName() + '.' + field.getName() + " is not accessible", e);
+						}
+						continue;
+					}
+					if (field.getType().isPrimitive())
+					{
+						primitives.add(field);
+					}
+					else
+					{
+						references.add(field);
+					}
+				}
+			}
+			this.primitiveFields = primitives.toArray(new Field[primitives.size()]);
+			this.referenceFields = references.toArray(new Field[references.size()]);
+			this.accessFailure = failure;
+		}
+
+		@Override
+		public Object copy(final Object object, final Map<Object, Object> copies)
+		{
+			if (accessFailure != null)
+			{
+				throw accessFailure;
+			}
+			if (constructor == null)
+			{
+				throw new IllegalArgumentException("Unable to copy instances of " + type.getName() +
+						": no default constructor");
+			}
+			final Object copy = newInstance(constructor);
+			copies.put(object, copy);
+			try
+			{
+				for (final Field field : primitiveFields)
+				{
+					field.set(copy, field.get(object));
+				}
+				for (final Field field : referenceFields)
+				{
+					field.set(copy, DeepCopier.copy(field.get(object), copies));
+				}
+			}
+			catch (IllegalAccessException e)
+			{
+				throw ExceptionUtils.escalate(e);
+			}
+			return copy;
+		}
+	}
+
+	private static Constructor<?> constructorOf(final Class<?> type, final Class<?>... parameterTypes)
+	{
+		try
+		{
+			final Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+			constructor.setAccessible(true);
+			return constructor;
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+		catch (RuntimeException e)
+		{
+			// a SecurityException or, with the Java module system, an InaccessibleObjectException
+			return null;
+		}
+	}
+
+	private static Object newInstance(final Constructor<?> constructor, final Object... args)
+	{
+		try
+		{
+			return constructor.newInstance(args);
+		}
+		catch (InvocationTargetException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw ExceptionUtils.escalate((Exception) cause);
+		}
+		catch (Exception e)
+		{
+			throw ExceptionUtils.escalate(e);
+		}
+	}
+
+	private static Object invoke(final Method method, final Object target)
+	{
+		try
+		{
+			return method.invoke(target);
+		}
+		catch (InvocationTargetException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw ExceptionUtils.escalate((Exception) cause);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw ExceptionUtils.escalate(e);
+		}
+	}
+}
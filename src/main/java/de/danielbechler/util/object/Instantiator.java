@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+/**
+ * Creates fresh instances of a specific type.
+ *
+ * @author Daniel Bechler
+ * @see ClassUtils#instantiatorOf(Class)
+ */
+public interface Instantiator<T>
+{
+	/**
+	 * @return A new instance or <code>null</code>, if the type doesn't have a public default constructor.
+	 *
+	 * @throws RuntimeException If the constructor threw an exception.
+	 */
+	T newInstance();
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.exception.*;
+import org.slf4j.*;
+
+import java.lang.ref.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A thread-safe pool for objects that are expensive to create and not thread-safe themselves, like {@link
+ * java.security.MessageDigest}, {@link java.text.SimpleDateFormat} or {@link java.util.zip.Deflater}.
+ * <p/>
+ * Idle objects are kept in a fixed number of slots that are claimed and filled with compare-and-set, so
+ * neither {@link #borrow()} nor {@link #release(Object)} ever blocks. Each thread starts looking at a slot
+ * derived from its id, which keeps threads from contending for the same slot and tends to hand them the same
+ * object they released before. There are no thread-locals involved, so it works just as well with large
+ * numbers of short-lived (e.g. virtual) threads.
+ * <p/>
+ * The pool only bounds the number of <em>idle</em> objects: when all slots are empty a new object is created,
+ * and when all slots are taken a released object is destroyed.
+ * <p/>
+ * With leak detection enabled, objects that are garbage collected without having been released are logged
+ * together with the stack trace of the call that borrowed them. That's expensive, so it's meant for
+ * debugging only.
+ *
+ * @author Daniel Bechler
+ */
+public final class ObjectPool<T>
+{
+	private static final Logger logger = LoggerFactory.getLogger(ObjectPool.class);
+
+	/** Creates the pooled objects and controls their life cycle. */
+	public abstract static class Factory<T>
+	{
+		public abstract T create() throws Exception;
+
+		/** Called before an idle object is borrowed. Invalid objects are destroyed. */
+		public boolean validate(final T object)
+		{
+			return true;
+		}
+
+		/** Called when an object is released, to bring it back to a clean state before others can borrow it. */
+		public void reset(final T object) throws Exception
+		{
+		}
+
+		/** Called when an object is dropped from the pool, e.g. to free native resources. */
+		public void destroy(final T object)
+		{
+		}
+	}
+
+	private final Factory<T> factory;
+	private final AtomicReferenceArray<T> slots;
+	private final int mask;
+	private final int capacity;
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong releaseCount = new AtomicLong();
+	private final AtomicLong createCount = new AtomicLong();
+	private final AtomicLong destroyCount = new AtomicLong();
+	private final LeakDetector leakDetector;
+
+	public ObjectPool(final Factory<T> factory, final int capacity)
+	{
+		this(factory, capacity, false);
+	}
+
+	/** @param capacity The maximum number of idle objects to keep. */
+	public ObjectPool(final Factory<T> factory, final int capacity, final boolean leakDetection)
+	{
+		Assert.notNull(factory, "factory");
+		Assert.greaterOrEqual(1, capacity, "capacity");
+		this.factory = factory;
+		this.capacity = capacity;
+		final int slotCount = Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new AtomicReferenceArray<T>(Math.max(1, slotCount));
+		this.mask = slots.length() - 1;
+		this.leakDetector = leakDetection ? new LeakDetector() : null;
+	}
+
+	/**
+	 * @return An idle object or a new one, if there is no idle one. Must be passed to {@link #release(Object)}
+	 *         when it's no longer needed.
+	 */
+	public T borrow()
+	{
+		borrowCount.incrementAndGet();
+		T object = takeIdle();
+		while (object != null && !isValid(object))
+		{
+			destroy(object);
+			object = takeIdle();
+		}
+		if (object == null)
+		{
+			object = create();
+		}
+		if (leakDetector != null)
+		{
+			leakDetector.track(object);
+		}
+		return object;
+	}
+
+	/**
+	 * Resets the given object and returns it to the pool. Objects that can't be reset are destroyed. With leak
+	 * detection enabled, objects that haven't been borrowed (or have already been released) are ignored, since
+	 * they may already be idle or in use by someone else.
+	 */
+	public void release(final T object)
+	{
+		Assert.notNull(object, "object");
+		releaseCount.incrementAndGet();
+		if (leakDetector != null && !leakDetector.untrack(object))
+		{
+			return;
+		}
+		try
+		{
+			factory.reset(object);
+		}
+		catch (Exception e)
+		{
+			logger.debug("Unable to reset pooled object. Destroying it.", e);
+			destroy(object);
+			return;
+		}
+		if (!putIdle(object))
+		{
+			destroy(object);
+		}
+	}
+
+	/** Destroys all idle objects. */
+	public void clear()
+	{
+		for (int i = 0; i < slots.length(); i++)
+		{
+			final T object = slots.getAndSet(i, null);
+			if (object != null)
+			{
+				idleCount.decrementAndGet();
+				destroy(object);
+			}
+		}
+	}
+
+	private T takeIdle()
+	{
+		if (idleCount.get() <= 0)
+		{
+			return null;
+		}
+		final int home = homeSlot();
+		for (int i = 0; i <= mask; i++)
+		{
+			final int index = (home + i) & mask;
+			if (slots.get(index) != null)
+			{
+				final T object = slots.getAndSet(index, null);
+				if (object != null)
+				{
+					idleCount.decrementAndGet();
+					return object;
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean putIdle(final T object)
+	{
+		// reserve a place first, so there are never more idle objects than the capacity allows
+		if (idleCount.incrementAndGet() > capacity)
+		{
+			idleCount.decrementAndGet();
+			return false;
+		}
+		final int home = homeSlot();
+		for (int i = 0; i <= mask; i++)
+		{
+			final int index = (home + i) & mask;
+			if (slots.get(index) == null && slots.compareAndSet(index, null, object))
+			{
+				return true;
+			}
+		}
+		idleCount.decrementAndGet();
+		return false;
+	}
+
+	private int homeSlot()
+	{
+		final long id = Thread.currentThread().getId();
+		final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private boolean isValid(final T object)
+	{
+		try
+		{
+			return factory.validate(object);
+		}
+		catch (RuntimeException e)
+		{
+			logger.debug("Unable to validate pooled object. Destroying it.", e);
+			return false;
+		}
+	}
+
+	private T create()
+	{
+		final T object;
+		try
+		{
+			object = factory.create();
+		}
+		catch (Exception e)
+		{
+			throw ExceptionUtils.escalate(e);
+		}
+		Assert.notNull(object, "created object");
+		createCount.incrementAndGet();
+		return object;
+	}
+
+	private void destroy(final T object)
+	{
+		destroyCount.incrementAndGet();
+		try
+		{
+			factory.destroy(object);
+		}
+		catch (RuntimeException e)
+		{
+			logger.debug("Unable to destroy pooled object.", e);
+		}
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public int getIdleCount()
+	{
+		return Math.max(0, idleCount.get());
+	}
+
+	public long getBorrowCount()
+	{
+		return borrowCount.get();
+	}
+
+	public long getReleaseCount()
+	{
+		return releaseCount.get();
+	}
+
+	public long getCreateCount()
+	{
+		return createCount.get();
+	}
+
+	public long getDestroyCount()
+	{
+		return destroyCount.get();
+	}
+
+	private static final class LeakDetector
+	{
+		private final ConcurrentMap<Object, Throwable> borrowed = new ConcurrentHashMap<Object, Throwable>();
+		private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+		private void track(final Object object)
+		{
+			reportLeaks();
+			borrowed.put(new TrackedKey(object, queue), new Throwable("Borrowed here"));
+		}
+
+		/** @return <code>false</code> if the object wasn't borrowed. */
+		private boolean untrack(final Object object)
+		{
+			final boolean tracked = borrowed.remove(new LookupKey(object)) != null;
+			if (!tracked)
+			{
+				logger.warn("Released an object that wasn't borrowed from this pool (or was released twice): {}",
+						object.getClass().getName());
+			}
+			reportLeaks();
+			return tracked;
+		}
+
+		private void reportLeaks()
+		{
+			Reference<?> reference = queue.poll();
+			while (reference != null)
+			{
+				final Throwable borrowedAt = borrowed.remove(reference);
+				if (borrowedAt != null)
+				{
+					logger.warn("A pooled object was garbage collected without being released.", borrowedAt);
+				}
+				reference = queue.poll();
+			}
+		}
+	}
+
+	private static final class TrackedKey extends WeakReference<Object>
+	{
+		private final int hashCode;
+
+		private TrackedKey(final Object object, final ReferenceQueue<Object> queue)
+		{
+			super(object, queue);
+			this.hashCode = System.identityHashCode(object);
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (this == o)
+			{
+				return true;
+			}
+			final Object object = get();
+			if (object == null)
+			{
+				return false;
+			}
+			if (o instanceof LookupKey)
+			{
+				return object == ((LookupKey) o).object;
+			}
+			return o instanceof TrackedKey && object == ((TrackedKey) o).get();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+
+	private static final class LookupKey
+	{
+		private final Object object;
+
+		private LookupKey(final Object object)
+		{
+			this.object = object;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			if (o instanceof TrackedKey)
+			{
+				return o.equals(this);
+			}
+			return o instanceof LookupKey && ((LookupKey) o).object == object;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(object);
+		}
+	}
+}
@@ -16,6 +16,8 @@
 
 package de.danielbechler.util.object;
 
+import java.util.*;
+
 /** @author Daniel Bechler */
 public final class ObjectUtils
 {
@@ -25,14 +27,381 @@ public final class ObjectUtils
 
 	public static boolean isEqual(final Object a, final Object b)
 	{
-		if (a != null)
+		if (a == b)
+		{
+			return true;
+		}
+		else if (a != null)
 		{
 			return a.equals(b);
 		}
-		else if (b != null)
+		return b.equals(a);
+	}
+
+	/**
+	 * Like {@link #isEqual(Object, Object)}, but compares arrays by content and looks into arrays, lists and
+	 * maps, so that e.g. two lists of arrays are equal when the arrays contain the same elements. Map keys and
+	 * set elements are still compared with {@link Object#equals(Object)}. Cyclic structures are supported.
+	 */
+	public static boolean isDeepEqual(final Object a, final Object b)
+	{
+		return isDeepEqual(a, b, null);
+	}
+
+	/**
+	 * @return A hash code that is consistent with {@link #isDeepEqual(Object, Object)}. Cyclic structures are
+	 *         deep equal no matter how often they are unrolled (e.g. <code>l1 = [l1]</code> and <code>l2 =
+	 *         [[l2]]</code>), so for them only the top level elements count and nested containers contribute
+	 *         just their size.
+	 */
+	public static int deepHashCode(final Object object)
+	{
+		if (!isContainer(object))
+		{
+			return deepHashCode(object, null);
+		}
+		final Visits visits = new Visits();
+		final int hashCode = deepHashCode(object, visits);
+		return visits.cycleFound ? shallowHashCode(object) : hashCode;
+	}
+
+	private static boolean isDeepEqual(final Object a, final Object b, final Visits visits)
+	{
+		if (a == b)
+		{
+			return true;
+		}
+		if (a == null || b == null)
+		{
+			return false;
+		}
+		final Class<?> type = a.getClass();
+		if (type.isArray())
+		{
+			if (!b.getClass().isArray())
+			{
+				return false;
+			}
+			if (type.getComponentType().isPrimitive() || b.getClass().getComponentType().isPrimitive())
+			{
+				return type == b.getClass() && isPrimitiveArrayEqual(a, b);
+			}
+			final Object[] arrayA = (Object[]) a;
+			final Object[] arrayB = (Object[]) b;
+			if (arrayA.length != arrayB.length)
+			{
+				return false;
+			}
+			return isDeepEqual(Arrays.asList(arrayA), Arrays.asList(arrayB), a, b, visits);
+		}
+		if (a instanceof List)
+		{
+			if (!(b instanceof List) || ((List<?>) a).size() != ((List<?>) b).size())
+			{
+				return false;
+			}
+			return isDeepEqual((List<?>) a, (List<?>) b, a, b, visits);
+		}
+		if (a instanceof Map)
+		{
+			if (!(b instanceof Map) || ((Map<?, ?>) a).size() != ((Map<?, ?>) b).size())
+			{
+				return false;
+			}
+			return isDeepEqual((Map<?, ?>) a, (Map<?, ?>) b, visits);
+		}
+		if (a instanceof Collection && b instanceof Collection)
+		{
+			if (((Collection<?>) a).size() != ((Collection<?>) b).size())
+			{
+				return false;
+			}
+		}
+		return a.equals(b);
+	}
+
+	private static boolean isDeepEqual(final List<?> a,
+									   final List<?> b,
+									   final Object containerA,
+									   final Object containerB,
+									   final Visits visits)
+	{
+		if (visits != null && visits.contains(containerA, containerB))
+		{
+			// already being compared further up, so any difference will be found there
+			return true;
+		}
+		final Visits currentVisits = visits != null ? visits : new Visits();
+		currentVisits.push(containerA, containerB);
+		try
+		{
+			final Iterator<?> iteratorB = b.iterator();
+			for (final Object elementA : a)
+			{
+				if (!iteratorB.hasNext() || !isDeepEqual(elementA, iteratorB.next(), currentVisits))
+				{
+					return false;
+				}
+			}
+			return !iteratorB.hasNext();
+		}
+		finally
+		{
+			currentVisits.pop();
+		}
+	}
+
+	private static boolean isDeepEqual(final Map<?, ?> a, final Map<?, ?> b, final Visits visits)
+	{
+		if (visits != null && visits.contains(a, b))
+		{
+			return true;
+		}
+		final Visits currentVisits = visits != null ? visits : new Visits();
+		currentVisits.push(a, b);
+		try
+		{
+			for (final Map.Entry<?, ?> entry : a.entrySet())
+			{
+				final Object valueB = b.get(entry.getKey());
+				if (valueB == null && !b.containsKey(entry.getKey()))
+				{
+					return false;
+				}
+				if (!isDeepEqual(entry.getValue(), valueB, currentVisits))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		finally
+		{
+			currentVisits.pop();
+		}
+	}
+
+	private static boolean isPrimitiveArrayEqual(final Object a, final Object b)
+	{
+		if (a instanceof int[])
+		{
+			return Arrays.equals((int[]) a, (int[]) b);
+		}
+		else if (a instanceof long[])
+		{
+			return Arrays.equals((long[]) a, (long[]) b);
+		}
+		else if (a instanceof byte[])
+		{
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		}
+		else if (a instanceof char[])
+		{
+			return Arrays.equals((char[]) a, (char[]) b);
+		}
+		else if (a instanceof double[])
+		{
+			return Arrays.equals((double[]) a, (double[]) b);
+		}
+		else if (a instanceof float[])
+		{
+			return Arrays.equals((float[]) a, (float[]) b);
+		}
+		else if (a instanceof short[])
+		{
+			return Arrays.equals((short[]) a, (short[]) b);
+		}
+		return Arrays.equals((boolean[]) a, (boolean[]) b);
+	}
+
+	private static int deepHashCode(final Object object, final Visits visits)
+	{
+		if (object == null)
+		{
+			return 0;
+		}
+		final Class<?> type = object.getClass();
+		if (type.isArray())
+		{
+			if (type.getComponentType().isPrimitive())
+			{
+				return primitiveArrayHashCode(object);
+			}
+			return deepHashCode(Arrays.asList((Object[]) object), object, visits);
+		}
+		if (object instanceof List)
+		{
+			return deepHashCode((List<?>) object, object, visits);
+		}
+		if (object instanceof Map)
+		{
+			return deepHashCode((Map<?, ?>) object, visits);
+		}
+		return object.hashCode();
+	}
+
+	private static int deepHashCode(final List<?> list, final Object container, final Visits visits)
+	{
+		if (visits.contains(container, container))
+		{
+			// the result gets replaced by the shallow hash code anyway
+			visits.cycleFound = true;
+			return 0;
+		}
+		visits.push(container, container);
+		try
+		{
+			int hashCode = 1;
+			for (final Object element : list)
+			{
+				hashCode = 31 * hashCode + deepHashCode(element, visits);
+			}
+			return hashCode;
+		}
+		finally
+		{
+			visits.pop();
+		}
+	}
+
+	private static int deepHashCode(final Map<?, ?> map, final Visits visits)
+	{
+		if (visits.contains(map, map))
+		{
+			visits.cycleFound = true;
+			return 0;
+		}
+		visits.push(map, map);
+		try
+		{
+			int hashCode = 0;
+			for (final Map.Entry<?, ?> entry : map.entrySet())
+			{
+				final Object key = entry.getKey();
+				hashCode += (key != null ? key.hashCode() : 0) ^ deepHashCode(entry.getValue(), visits);
+			}
+			return hashCode;
+		}
+		finally
+		{
+			visits.pop();
+		}
+	}
+
+	private static boolean isContainer(final Object object)
+	{
+		return object instanceof Object[] || object instanceof List || object instanceof Map;
+	}
+
+	/** Hashes the elements of the given container, but of nested containers only their size. */
+	private static int shallowHashCode(final Object container)
+	{
+		if (container instanceof Map)
+		{
+			int hashCode = 0;
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) container).entrySet())
+			{
+				final Object key = entry.getKey();
+				hashCode += (key != null ? key.hashCode() : 0) ^ nestedHashCode(entry.getValue());
+			}
+			return hashCode;
+		}
+		final List<?> list = container instanceof List ? (List<?>) container : Arrays.asList((Object[]) container);
+		int hashCode = 1;
+		for (final Object element : list)
+		{
+			hashCode = 31 * hashCode + nestedHashCode(element);
+		}
+		return hashCode;
+	}
+
+	private static int nestedHashCode(final Object element)
+	{
+		if (element instanceof Object[])
+		{
+			return ((Object[]) element).length;
+		}
+		if (element instanceof List)
+		{
+			return ((List<?>) element).size();
+		}
+		if (element instanceof Map)
+		{
+			return ((Map<?, ?>) element).size();
+		}
+		return deepHashCode(element, null);
+	}
+
+	private static int primitiveArrayHashCode(final Object array)
+	{
+		if (array instanceof int[])
+		{
+			return Arrays.hashCode((int[]) array);
+		}
+		else if (array instanceof long[])
+		{
+			return Arrays.hashCode((long[]) array);
+		}
+		else if (array instanceof byte[])
+		{
+			return Arrays.hashCode((byte[]) array);
+		}
+		else if (array instanceof char[])
+		{
+			return Arrays.hashCode((char[]) array);
+		}
+		else if (array instanceof double[])
+		{
+			return Arrays.hashCode((double[]) array);
+		}
+		else if (array instanceof float[])
+		{
+			return Arrays.hashCode((float[]) array);
+		}
+		else if (array instanceof short[])
+		{
+			return Arrays.hashCode((short[]) array);
+		}
+		return Arrays.hashCode((boolean[]) array);
+	}
+
+	/** The pairs of containers currently being compared, innermost last. Usually only a few levels deep. */
+	private static final class Visits
+	{
+		private Object[] left = new Object[8];
+		private Object[] right = new Object[8];
+		private int size;
+		private boolean cycleFound;
+
+		private boolean contains(final Object a, final Object b)
+		{
+			for (int i = size - 1; i >= 0; i--)
+			{
+				if (left[i] == a && right[i] == b)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void push(final Object a, final Object b)
+		{
+			if (size == left.length)
+			{
+				left = Arrays.copyOf(left, size * 2);
+				right = Arrays.copyOf(right, size * 2);
+			}
+			left[size] = a;
+			right[size] = b;
+			size++;
+		}
+
+		private void pop()
 		{
-			return b.equals(a);
+			size--;
+			left[size] = null;
+			right[size] = null;
 		}
-		return true;
 	}
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.exception.*;
+
+import java.lang.reflect.*;
+
+/**
+ * Reads and writes a single bean property through its resolved getter and setter.
+ *
+ * @author Daniel Bechler
+ * @see BeanProperties#accessorFor(Class, String)
+ */
+public final class PropertyAccessor
+{
+	/** Shared by all getter invocations, which would otherwise allocate an empty varargs array each time. */
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final String name;
+	private final Class<?> type;
+	private final Method getter;
+	private final Method setter;
+
+	PropertyAccessor(final String name, final Class<?> type, final Method getter, final Method setter)
+	{
+		this.name = name;
+		this.type = type;
+		this.getter = makeAccessible(getter);
+		this.setter = makeAccessible(setter);
+	}
+
+	private static Method makeAccessible(final Method method)
+	{
+		if (method == null)
+		{
+			return null;
+		}
+		try
+		{
+			// skips the access check on every invocation and allows public methods of non-public classes
+			method.setAccessible(true);
+			return method;
+		}
+		catch (RuntimeException e)
+		{
+			// a SecurityException or, with the Java module system, an InaccessibleObjectException (e.g. for
+			// methods of non-public JDK classes like the one behind Collections.unmodifiableList)
+			final Method publicDeclaration = publicDeclarationOf(method, method.getDeclaringClass());
+			return publicDeclaration != null ? publicDeclaration : method;
+		}
+	}
+
+	/** @return The given method as declared by a public class or interface, which can be invoked without help. */
+	private static Method publicDeclarationOf(final Method method, final Class<?> type)
+	{
+		if (type == null)
+		{
+			return null;
+		}
+		if (Modifier.isPublic(type.getModifiers()))
+		{
+			try
+			{
+				final Method declaration = type.getDeclaredMethod(method.getName(), method.getParameterTypes());
+				if (Modifier.isPublic(declaration.getModifiers()))
+				{
+					return declaration;
+				}
+			}
+			catch (NoSuchMethodException ignored)
+			{
+			}
+		}
+		for (final Class<?> interfaceType : type.getInterfaces())
+		{
+			final Method declaration = publicDeclarationOf(method, interfaceType);
+			if (declaration != null)
+			{
+				return declaration;
+			}
+		}
+		return publicDeclarationOf(method, type.getSuperclass());
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public Class<?> getType()
+	{
+		return type;
+	}
+
+	public boolean isReadable()
+	{
+		return getter != null;
+	}
+
+	public boolean isWritable()
+	{
+		return setter != null;
+	}
+
+	public Object get(final Object bean)
+	{
+		if (getter == null)
+		{
+			throw new UnsupportedOperationException("Property '" + name + "' is not readable");
+		}
+		return invoke(getter, bean, NO_ARGUMENTS);
+	}
+
+	/**
+	 * Sets the given value. <code>null</code> values are ignored for primitive properties, which keeps their
+	 * default.
+	 */
+	public void set(final Object bean, final Object value)
+	{
+		if (setter == null)
+		{
+			throw new UnsupportedOperationException("Property '" + name + "' is not writable");
+		}
+		if (value == null && type.isPrimitive())
+		{
+			return;
+		}
+		invoke(setter, bean, new Object[]{value});
+	}
+
+	private static Object invoke(final Method method, final Object bean, final Object[] args)
+	{
+		try
+		{
+			return method.invoke(bean, args);
+		}
+		catch (InvocationTargetException e)
+		{
+			final Throwable cause = e.getCause();
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw ExceptionUtils.escalate((Exception) cause);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw ExceptionUtils.escalate(e);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " (" + type.getName() + ")";
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+/**
+ * The kind of a type, as determined by {@link ClassUtils#getTypeCategory(Class)}.
+ *
+ * @author Daniel Bechler
+ */
+public enum TypeCategory
+{
+	/** <code>int</code>, <code>boolean</code>, etc. */
+	PRIMITIVE(true),
+
+	/** The wrapper types of the primitives, like {@link Integer} or {@link Boolean}. */
+	BOXED(true),
+
+	/** Any {@link CharSequence}. */
+	TEXT(true),
+
+	/** {@link java.util.Date} and its subclasses. */
+	TEMPORAL(true),
+
+	/** Enum types. */
+	ENUM(true),
+
+	/** Other value types: any other {@link Number}, {@link java.net.URI}, {@link java.net.URL}, etc. */
+	VALUE(true),
+
+	/** Arrays, {@link java.util.Collection Collections} and {@link java.util.Map Maps}. */
+	CONTAINER(false),
+
+	/** Everything else. */
+	BEAN(false);
+
+	private final boolean simple;
+
+	private TypeCategory(final boolean simple)
+	{
+		this.simple = simple;
+	}
+
+	/** @return <code>true</code> for all categories covered by {@link ClassUtils#isSimpleType(Class)}. */
+	public boolean isSimple()
+	{
+		return simple;
+	}
+}
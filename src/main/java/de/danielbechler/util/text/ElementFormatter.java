@@ -0,0 +1,30 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import java.io.*;
+
+/**
+ * Writes the textual representation of an element directly into an {@link Appendable}.
+ *
+ * @author Daniel Bechler
+ * @see StringUtils#join(Appendable, String, java.util.Iterator, ElementFormatter)
+ */
+public interface ElementFormatter<T>
+{
+	void format(T element, Appendable target) throws IOException;
+}
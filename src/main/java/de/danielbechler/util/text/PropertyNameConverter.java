@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import de.danielbechler.util.assertion.*;
+import de.danielbechler.util.concurrent.*;
+
+/**
+ * Memoizing, thread-safe wrapper around {@link StringUtils#toPropertyExpression(String)} and {@link
+ * StringUtils#toUnderscoreCase(String)}, meant for the limited set of column and property names an
+ * application converts over and over again.
+ * <p/>
+ * The results are always the same as those of {@link StringUtils}. To get back the column name a property
+ * expression has been derived from (which may differ from its underscore case, e.g. <code>USER_ID</code> and
+ * <code>userId</code>), use {@link #getOriginalColumnName(String)}.
+ *
+ * @author Daniel Bechler
+ */
+public final class PropertyNameConverter
+{
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	private final BoundedCache<String, String> propertiesByColumn;
+	private final BoundedCache<String, String> columnsByProperty;
+	private final BoundedCache<String, String> originalColumnsByProperty;
+
+	public PropertyNameConverter()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** @param capacity The maximum number of names remembered per direction. */
+	public PropertyNameConverter(final int capacity)
+	{
+		this.propertiesByColumn = new BoundedCache<String, String>(capacity);
+		this.columnsByProperty = new BoundedCache<String, String>(capacity);
+		this.originalColumnsByProperty = new BoundedCache<String, String>(capacity);
+	}
+
+	/** @see StringUtils#toPropertyExpression(String) */
+	public String toPropertyExpression(final String columnName)
+	{
+		Assert.notNull(columnName, "columnName");
+		final String cached = propertiesByColumn.get(columnName);
+		if (cached != null)
+		{
+			return cached;
+		}
+		final String propertyName = propertiesByColumn.putIfAbsent(columnName,
+				StringUtils.toPropertyExpression(columnName));
+		originalColumnsByProperty.putIfAbsent(propertyName, columnName);
+		return propertyName;
+	}
+
+	/** @see StringUtils#toUnderscoreCase(String) */
+	public String toUnderscoreCase(final String propertyName)
+	{
+		Assert.notNull(propertyName, "propertyName");
+		final String cached = columnsByProperty.get(propertyName);
+		if (cached != null)
+		{
+			return cached;
+		}
+		return columnsByProperty.putIfAbsent(propertyName, StringUtils.toUnderscoreCase(propertyName));
+	}
+
+	/**
+	 * @return The column name that has been converted into the given property expression by {@link
+	 *         #toPropertyExpression(String)} or <code>null</code>, if there is none or it has been evicted. If
+	 *         several column names map to the same property expression, the first one is returned.
+	 */
+	public String getOriginalColumnName(final String propertyName)
+	{
+		Assert.notNull(propertyName, "propertyName");
+		return originalColumnsByProperty.get(propertyName);
+	}
+
+	public void clear()
+	{
+		propertiesByColumn.clear();
+		columnsByProperty.clear();
+		originalColumnsByProperty.clear();
+	}
+}
@@ -15,31 +15,189 @@
  */
 package de.danielbechler.util.text;
 
-import java.util.*;
+import de.danielbechler.util.assertion.*;
 
-/** @author Daniel Bechler */
-final class RandomSequenceGenerator
+import java.security.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Generates random sequences of characters from a given alphabet.
+ * <p/>
+ * Every thread draws from its own random source, so concurrent callers never contend. The sources are shared
+ * by all generators, so creating one for a custom alphabet is cheap. The default source is a fast,
+ * non-cryptographic PRNG. Use {@link #secure(CharSequence)} for session ids, tokens and the like; it
+ * draws from a per-thread {@link SecureRandom} through a small buffer. Random bits are mapped onto the
+ * alphabet by rejection sampling, so every character is equally likely regardless of the alphabet size.
+ *
+ * @author Daniel Bechler
+ */
+public final class RandomSequenceGenerator
 {
 	public static final String DEFAULT_ALPHABET =
 			"abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
 
-	private RandomSequenceGenerator()
+	/** Shared by all generators, regardless of their alphabet. */
+	private static final ThreadLocal<RandomSource> FAST_SOURCES = new ThreadLocal<RandomSource>()
+	{
+		@Override
+		protected RandomSource initialValue()
+		{
+			return new SplitMixRandomSource();
+		}
+	};
+
+	private static final ThreadLocal<RandomSource> SECURE_SOURCES = new ThreadLocal<RandomSource>()
 	{
+		@Override
+		protected RandomSource initialValue()
+		{
+			return new SecureRandomSource();
+		}
+	};
+
+	private static final RandomSequenceGenerator DEFAULT = new RandomSequenceGenerator(DEFAULT_ALPHABET, false);
+
+	private final char[] alphabet;
+	private final int bitsPerChar;
+	private final int charsPerDraw;
+	private final boolean secure;
+
+	private RandomSequenceGenerator(final CharSequence alphabet, final boolean secure)
+	{
+		Assert.notEmpty(alphabet, "alphabet");
+		this.alphabet = alphabet.toString().toCharArray();
+		this.bitsPerChar = Math.max(1, 32 - Integer.numberOfLeadingZeros(this.alphabet.length - 1));
+		this.charsPerDraw = 64 / bitsPerChar;
+		this.secure = secure;
+	}
+
+	/** @return A generator using a fast, non-cryptographic random source. */
+	public static RandomSequenceGenerator fast(final CharSequence alphabet)
+	{
+		return new RandomSequenceGenerator(alphabet, false);
+	}
+
+	/** @return A generator using a cryptographically strong random source. */
+	public static RandomSequenceGenerator secure(final CharSequence alphabet)
+	{
+		return new RandomSequenceGenerator(alphabet, true);
 	}
 
 	public static String generate(final int length)
 	{
-		return generate(length, DEFAULT_ALPHABET);
+		return DEFAULT.next(length);
 	}
 
 	public static String generate(final int length, final CharSequence alphabet)
 	{
-		final Random random = new Random(System.currentTimeMillis());
-		final StringBuilder sb = new StringBuilder(length);
-		for (int i = 0; i < length; i++)
+		if (DEFAULT_ALPHABET.equals(alphabet))
+		{
+			return DEFAULT.next(length);
+		}
+		return fast(alphabet).next(length);
+	}
+
+	public String next(final int length)
+	{
+		Assert.greaterOrEqual(0, length, "length");
+		final char[] chars = new char[length];
+		fill(chars, 0, length);
+		return new String(chars);
+	}
+
+	/** @return <code>count</code> random sequences of the given <code>length</code>. */
+	public String[] next(final int count, final int length)
+	{
+		Assert.greaterOrEqual(0, count, "count");
+		Assert.greaterOrEqual(0, length, "length");
+		final String[] sequences = new String[count];
+		final char[] chars = new char[length];
+		for (int i = 0; i < count; i++)
+		{
+			fill(chars, 0, length);
+			sequences[i] = new String(chars);
+		}
+		return sequences;
+	}
+
+	/** Fills the given range of <code>target</code> with random characters. */
+	public void fill(final char[] target, final int offset, final int length)
+	{
+		Assert.notNull(target, "target");
+		if (offset < 0 || length < 0 || offset + length > target.length)
+		{
+			throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length);
+		}
+		final RandomSource source = secure ? SECURE_SOURCES.get() : FAST_SOURCES.get();
+		final int mask = (1 << bitsPerChar) - 1;
+		final int alphabetLength = alphabet.length;
+		final int end = offset + length;
+		int position = offset;
+		while (position < end)
+		{
+			long bits = source.nextLong();
+			for (int i = 0; i < charsPerDraw && position < end; i++)
+			{
+				final int index = (int) bits & mask;
+				bits >>>= bitsPerChar;
+				if (index < alphabetLength)
+				{
+					target[position++] = alphabet[index];
+				}
+			}
+		}
+	}
+
+	private interface RandomSource
+	{
+		long nextLong();
+	}
+
+	/** The SplitMix64 generator, seeded so that no two instances start with the same state. */
+	private static final class SplitMixRandomSource implements RandomSource
+	{
+		private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+		private static final AtomicLong SEEDER = new AtomicLong(mix(System.currentTimeMillis()) ^
+				mix(System.nanoTime()));
+
+		private long state = mix(SEEDER.getAndAdd(GOLDEN_GAMMA) ^ System.nanoTime());
+
+		@Override
+		public long nextLong()
+		{
+			state += GOLDEN_GAMMA;
+			return mix(state);
+		}
+
+		private static long mix(final long value)
+		{
+			long z = value;
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
+		}
+	}
+
+	private static final class SecureRandomSource implements RandomSource
+	{
+		private final SecureRandom random = new SecureRandom();
+		private final byte[] buffer = new byte[512];
+		private int position = buffer.length;
+
+		@Override
+		public long nextLong()
 		{
-			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			if (position + 8 > buffer.length)
+			{
+				random.nextBytes(buffer);
+				position = 0;
+			}
+			long value = 0;
+			for (int i = 0; i < 8; i++)
+			{
+				value = (value << 8) | (buffer[position++] & 0xFF);
+			}
+			return value;
 		}
-		return sb.toString();
 	}
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import java.io.*;
+
+/**
+ * Single-pass implementation of {@link StringUtils#toSingleLineString(Object)}. It behaves like trimming the
+ * text and replacing all matches of <code>\s*\n\s*</code> with <code>" \ "</code>, but consumes its input
+ * one character at a time, so it can flatten text of any length.
+ * <p/>
+ * Characters that {@link String#trim()} would remove are held back until the next visible character
+ * arrives, which makes trailing whitespace disappear without lookahead.
+ *
+ * @author Daniel Bechler
+ */
+final class SingleLineFlattener
+{
+	private static final String LINE_BREAK_REPLACEMENT = " \\ ";
+
+	private final Appendable target;
+	private final int maxLength;
+	private final CharSequence truncationMarker;
+
+	/** Output of the held back characters before the current whitespace run. */
+	private final StringBuilder pending = new StringBuilder();
+
+	/** The current run of <code>\s</code> characters, as long as it doesn't contain a line break. */
+	private final StringBuilder run = new StringBuilder();
+	private boolean inRun;
+	private boolean runContainsLineBreak;
+
+	private boolean started;
+	private int length;
+	private boolean truncated;
+
+	/**
+	 * @param maxLength        The maximum number of characters to write, not counting the
+	 *                         <code>truncationMarker</code>. Negative values mean no limit.
+	 * @param truncationMarker Appended once the limit is exceeded.
+	 */
+	SingleLineFlattener(final Appendable target, final int maxLength, final CharSequence truncationMarker)
+	{
+		this.target = target;
+		this.maxLength = maxLength;
+		this.truncationMarker = truncationMarker;
+	}
+
+	/** @return <code>false</code> once the output has been truncated and further input would be ignored. */
+	boolean append(final CharSequence s) throws IOException
+	{
+		for (int i = 0, n = s.length(); i < n && !truncated; i++)
+		{
+			append(s.charAt(i));
+		}
+		return !truncated;
+	}
+
+	boolean append(final char[] chars, final int offset, final int count) throws IOException
+	{
+		for (int i = offset, end = offset + count; i < end && !truncated; i++)
+		{
+			append(chars[i]);
+		}
+		return !truncated;
+	}
+
+	private void append(final char c) throws IOException
+	{
+		if (c <= ' ')
+		{
+			// leading whitespace is dropped right away, everything else waits for the next visible character
+			if (started)
+			{
+				holdBack(c);
+			}
+			return;
+		}
+		endRun();
+		if (pending.length() > 0)
+		{
+			emit(pending);
+			pending.setLength(0);
+		}
+		started = true;
+		if (!truncated)
+		{
+			emit(c);
+		}
+	}
+
+	private void holdBack(final char c)
+	{
+		if (isRegexWhitespace(c))
+		{
+			inRun = true;
+			if (c == '\n')
+			{
+				// the whole run collapses into the replacement, so its characters don't matter anymore
+				runContainsLineBreak = true;
+				run.setLength(0);
+			}
+			else if (!runContainsLineBreak)
+			{
+				appendWithinBudget(run, c);
+			}
+		}
+		else
+		{
+			endRun();
+			appendWithinBudget(pending, c);
+		}
+	}
+
+	private void endRun()
+	{
+		if (!inRun)
+		{
+			return;
+		}
+		if (runContainsLineBreak)
+		{
+			for (int i = 0; i < LINE_BREAK_REPLACEMENT.length(); i++)
+			{
+				appendWithinBudget(pending, LINE_BREAK_REPLACEMENT.charAt(i));
+			}
+		}
+		else
+		{
+			for (int i = 0; i < run.length(); i++)
+			{
+				appendWithinBudget(pending, run.charAt(i));
+			}
+		}
+		run.setLength(0);
+		inRun = false;
+		runContainsLineBreak = false;
+	}
+
+	/**
+	 * Characters beyond the first one that exceeds <code>maxLength</code> would never be written, so there is no
+	 * need to keep them.
+	 */
+	private void appendWithinBudget(final StringBuilder buffer, final char c)
+	{
+		if (maxLength < 0 || buffer.length() <= maxLength - length)
+		{
+			buffer.append(c);
+		}
+	}
+
+	private void emit(final CharSequence s) throws IOException
+	{
+		for (int i = 0, n = s.length(); i < n && !truncated; i++)
+		{
+			emit(s.charAt(i));
+		}
+	}
+
+	private void emit(final char c) throws IOException
+	{
+		if (maxLength >= 0 && length >= maxLength)
+		{
+			truncated = true;
+			if (truncationMarker != null)
+			{
+				target.append(truncationMarker);
+			}
+			return;
+		}
+		target.append(c);
+		length++;
+	}
+
+	boolean isTruncated()
+	{
+		return truncated;
+	}
+
+	/** Matches the characters of the regular expression class <code>\s</code>. */
+	private static boolean isRegexWhitespace(final char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+}
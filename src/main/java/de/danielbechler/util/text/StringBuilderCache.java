@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+/**
+ * Keeps one {@link StringBuilder} per thread for code that builds short-lived strings in a hot path. Builders
+ * that grew beyond {@link #MAX_CACHED_CAPACITY} are not kept, so a single huge string doesn't pin its buffer
+ * to the thread forever.
+ * <p/>
+ * Usage:
+ * <pre>
+ * final StringBuilder sb = StringBuilderCache.acquire(64);
+ * sb.append(...);
+ * return StringBuilderCache.toStringAndRelease(sb);
+ * </pre>
+ * Nested use is safe: while a thread holds its cached builder, further calls to {@link #acquire(int)} hand out
+ * new instances.
+ *
+ * @author Daniel Bechler
+ */
+public final class StringBuilderCache
+{
+	public static final int MAX_CACHED_CAPACITY = 2048;
+
+	private static final ThreadLocal<StringBuilder> CACHE = new ThreadLocal<StringBuilder>();
+
+	private StringBuilderCache()
+	{
+	}
+
+	/** @return An empty builder with at least the given capacity. */
+	public static StringBuilder acquire(final int capacity)
+	{
+		final StringBuilder sb = CACHE.get();
+		if (sb != null)
+		{
+			CACHE.set(null);
+			sb.setLength(0);
+			sb.ensureCapacity(capacity);
+			return sb;
+		}
+		return new StringBuilder(Math.max(capacity, 16));
+	}
+
+	/**
+	 * Returns the given builder to the cache of the current thread. The builder must not be used afterwards.
+	 *
+	 * @return The content of the given builder.
+	 */
+	public static String toStringAndRelease(final StringBuilder sb)
+	{
+		final String s = sb.toString();
+		release(sb);
+		return s;
+	}
+
+	/** Returns the given builder to the cache of the current thread. The builder must not be used afterwards. */
+	public static void release(final StringBuilder sb)
+	{
+		if (sb.capacity() <= MAX_CACHED_CAPACITY)
+		{
+			CACHE.set(sb);
+		}
+	}
+}
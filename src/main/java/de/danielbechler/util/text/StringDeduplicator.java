@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import de.danielbechler.util.assertion.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded, lock-free alternative to {@link String#intern()}. Strings are stored in a fixed number of slots
+ * chosen by their hash code. A string that maps to an occupied slot with a different value simply replaces
+ * it, so memory usage never exceeds the configured capacity and frequently used values stay cached.
+ * <p/>
+ * Unlike {@link String#intern()}, equal strings are only guaranteed to be the same instance while they are
+ * cached. Don't compare deduplicated strings with <code>==</code>.
+ *
+ * @author Daniel Bechler
+ */
+public final class StringDeduplicator
+{
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private final AtomicReferenceArray<String> slots;
+	private final int mask;
+
+	public StringDeduplicator()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** @param capacity The maximum number of cached strings. Will be rounded up to the next power of two. */
+	public StringDeduplicator(final int capacity)
+	{
+		Assert.between(capacity, 1, MAXIMUM_CAPACITY, true, "capacity");
+		int size = 1;
+		while (size < capacity)
+		{
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<String>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return A cached instance equal to the given string, or the given string itself, which will then be
+	 *         cached for subsequent calls.
+	 */
+	public String deduplicate(final String s)
+	{
+		if (s == null)
+		{
+			return null;
+		}
+		final int index = indexOf(s.hashCode());
+		final String cached = slots.get(index);
+		if (cached != null && cached.equals(s))
+		{
+			return cached;
+		}
+		slots.lazySet(index, s);
+		return s;
+	}
+
+	/** @return The number of slots, i.e. the maximum number of strings this instance will retain. */
+	public int capacity()
+	{
+		return mask + 1;
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i <= mask; i++)
+		{
+			slots.lazySet(i, null);
+		}
+	}
+
+	private int indexOf(final int hashCode)
+	{
+		// mix in the higher bits, so small tables don't ignore them
+		return (hashCode ^ (hashCode >>> 16)) & mask;
+	}
+}
@@ -16,13 +16,18 @@
 
 package de.danielbechler.util.text;
 
+import de.danielbechler.util.assertion.*;
+
+import java.io.*;
 import java.util.*;
-import java.util.regex.*;
 
 /** @author Daniel Bechler */
 public class StringUtils
 {
-	private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\\s*\\n\\s*");
+	private static final StringDeduplicator CAPITALIZED_STRINGS = new StringDeduplicator();
+
+	/** Caps the estimated length of joined collections, so huge ones don't allocate their buffer upfront. */
+	private static final int MAX_JOIN_SIZE_HINT = 65536;
 
 	private StringUtils()
 	{
@@ -30,7 +35,32 @@ public class StringUtils
 
 	public static boolean hasText(final String s)
 	{
-		return s != null && s.trim().length() > 0;
+		return hasText((CharSequence) s);
+	}
+
+	/**
+	 * Checks whether the given character sequence contains at least one character that would survive a call
+	 * to {@link String#trim()}, without actually creating the trimmed copy.
+	 *
+	 * @param s The character sequence to check.
+	 *
+	 * @return <code>true</code> if the given sequence is not <code>null</code> and contains at least one
+	 *         non-whitespace character.
+	 */
+	public static boolean hasText(final CharSequence s)
+	{
+		if (s == null)
+		{
+			return false;
+		}
+		for (int i = 0, length = s.length(); i < length; i++)
+		{
+			if (s.charAt(i) > ' ')
+			{
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public static boolean isEmpty(final String s)
@@ -38,38 +68,94 @@ public class StringUtils
 		return !hasText(s);
 	}
 
+	public static boolean isEmpty(final CharSequence s)
+	{
+		return !hasText(s);
+	}
+
+	/**
+	 * Same as {@link #capitalize(String, StringDeduplicator)} using a shared deduplicator, so repeated calls
+	 * with the same input don't retain multiple copies of the result.
+	 */
 	public static String capitalize(final String s)
+	{
+		return capitalize(s, CAPITALIZED_STRINGS);
+	}
+
+	/**
+	 * Converts the first character of the given string to upper-case.
+	 *
+	 * @param s            The string to capitalize.
+	 * @param deduplicator Used to deduplicate newly created strings. May be <code>null</code> to skip
+	 *                     deduplication.
+	 *
+	 * @return The capitalized string or <code>s</code> itself, if it was already capitalized.
+	 */
+	public static String capitalize(final String s, final StringDeduplicator deduplicator)
 	{
 		if (s != null && s.length() > 0)
 		{
+			final char firstChar = s.charAt(0);
+			final char upperCaseChar = Character.toUpperCase(firstChar);
+			if (firstChar == upperCaseChar)
+			{
+				return s;
+			}
 			final char[] chars = s.toCharArray();
-			chars[0] = Character.toUpperCase(chars[0]);
-			return new String(chars).intern();
+			chars[0] = upperCaseChar;
+			final String capitalized = new String(chars);
+			return deduplicator != null ? deduplicator.deduplicate(capitalized) : capitalized;
 		}
 		return s;
 	}
 
 	public static String toPropertyExpression(final String s)
 	{
-		final char[] chars = s.toCharArray();
-		final StringBuilder sb = new StringBuilder();
+		return toPropertyExpression(s, new StringBuilder(s.length())).toString();
+	}
+
+	/**
+	 * Same as {@link #toPropertyExpression(String)} but appends the result to the given builder.
+	 *
+	 * @return The given builder.
+	 */
+	public static StringBuilder toPropertyExpression(final CharSequence s, final StringBuilder target)
+	{
+		try
+		{
+			toPropertyExpression(s, (Appendable) target);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("StringBuilders don't throw IOExceptions", e);
+		}
+		return target;
+	}
+
+	/**
+	 * Same as {@link #toPropertyExpression(String)} but appends the result to the given target.
+	 *
+	 * @throws IOException If the target throws one.
+	 */
+	public static void toPropertyExpression(final CharSequence s, final Appendable target) throws IOException
+	{
 		char previousChar = ' ';
-		for (final char aChar : chars)
+		for (int i = 0, length = s.length(); i < length; i++)
 		{
+			final char aChar = s.charAt(i);
 			if (aChar != '_')
 			{
 				if (previousChar == '_')
 				{
-					sb.append(Character.toUpperCase(aChar));
+					target.append(Character.toUpperCase(aChar));
 				}
 				else
 				{
-					sb.append(Character.toLowerCase(aChar));
+					target.append(Character.toLowerCase(aChar));
 				}
 			}
 			previousChar = aChar;
 		}
-		return sb.toString();
 	}
 
 	/**
@@ -82,80 +168,260 @@ public class StringUtils
 	 */
 	public static String toUnderscoreCase(final String s)
 	{
-		final char[] chars = s.toCharArray();
-		final StringBuilder sb = new StringBuilder();
+		return toUnderscoreCase(s, new StringBuilder(s.length() + 8)).toString();
+	}
+
+	/**
+	 * Same as {@link #toUnderscoreCase(String)} but appends the result to the given builder.
+	 *
+	 * @return The given builder.
+	 */
+	public static StringBuilder toUnderscoreCase(final CharSequence s, final StringBuilder target)
+	{
+		try
+		{
+			toUnderscoreCase(s, (Appendable) target);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("StringBuilders don't throw IOExceptions", e);
+		}
+		return target;
+	}
+
+	/**
+	 * Same as {@link #toUnderscoreCase(String)} but appends the result to the given target.
+	 *
+	 * @throws IOException If the target throws one.
+	 */
+	public static void toUnderscoreCase(final CharSequence s, final Appendable target) throws IOException
+	{
 		char previousChar = 0;
-		for (final char aChar : chars)
+		for (int i = 0, length = s.length(); i < length; i++)
 		{
+			final char aChar = s.charAt(i);
 			if (Character.isUpperCase(aChar))
 			{
 				if (previousChar != 0)
 				{
-					sb.append('_');
+					target.append('_');
 				}
-				sb.append(Character.toLowerCase(aChar));
+				target.append(Character.toLowerCase(aChar));
 			}
 			else
 			{
-				sb.append(aChar);
+				target.append(aChar);
 			}
 			previousChar = aChar;
 		}
-		return sb.toString();
 	}
 
 	/**
-	 * Joins all non-null elements of the given <code>elements</code> into one String.
+	 * Joins all non-null elements of the given <code>elements</code> into one String. Empty elements are kept,
+	 * so <code>join(",", "", "a")</code> returns <code>",a"</code>.
 	 *
-	 * @param delimiter Inserted as separator between consecutive elements.
+	 * @param delimiter Inserted as separator between consecutive non-null elements.
 	 * @param elements  The elements to join.
 	 *
 	 * @return A long string containing all non-null elements.
 	 */
 	public static String join(final String delimiter, final Object... elements)
 	{
-		final StringBuilder sb = new StringBuilder();
-		for (final Object part : elements)
+		final StringBuilder sb = StringBuilderCache.acquire(16);
+		appendJoined(sb, delimiter, Arrays.asList(elements).iterator());
+		return StringBuilderCache.toStringAndRelease(sb);
+	}
+
+	/**
+	 * Same as {@link #join(String, Object...)} but with a {@link java.util.Collection} instead of an Array
+	 * for the elements.
+	 *
+	 * @see #join(String, java.util.Collection)
+	 */
+	public static String join(final String delimiter, final Collection<?> elements)
+	{
+		if (elements == null || elements.isEmpty())
+		{
+			return "";
+		}
+		// assume at least one character per element, which never over-allocates for non-empty elements
+		final long sizeHint = (long) elements.size() * ((delimiter != null ? delimiter.length() : 0) + 1);
+		return joinPresized(delimiter, elements, (int) Math.min(sizeHint, MAX_JOIN_SIZE_HINT));
+	}
+
+	/**
+	 * Same as {@link #join(String, Object...)} but with an {@link Iterable} instead of an Array for the
+	 * elements.
+	 */
+	public static String join(final String delimiter, final Iterable<?> elements)
+	{
+		return joinPresized(delimiter, elements, 16);
+	}
+
+	/**
+	 * Same as {@link #join(String, Iterable)} but allows to presize the internal buffer, which avoids
+	 * repeatedly growing it when joining a large number of elements.
+	 *
+	 * @param sizeHint The expected length of the resulting string.
+	 */
+	public static String joinPresized(final String delimiter, final Iterable<?> elements, final int sizeHint)
+	{
+		if (elements == null)
 		{
+			return "";
+		}
+		final StringBuilder sb = StringBuilderCache.acquire(sizeHint);
+		return StringBuilderCache.toStringAndRelease(appendJoined(sb, delimiter, elements.iterator()));
+	}
+
+	private static StringBuilder appendJoined(final StringBuilder sb,
+											  final String delimiter,
+											  final Iterator<?> elements)
+	{
+		boolean first = true;
+		while (elements.hasNext())
+		{
+			final Object part = elements.next();
 			if (part == null)
 			{
 				continue;
 			}
-			if (sb.length() > 0)
+			if (!first)
 			{
 				sb.append(delimiter);
 			}
 			sb.append(part.toString());
+			first = false;
 		}
-		return sb.toString();
+		return sb;
 	}
 
 	/**
-	 * Same as {@link #join(String, Object...)} but with a {@link java.util.Collection} instead of an Array
-	 * for the elements.
+	 * Streams all non-null elements into the given target (e.g. a {@link java.io.Writer}), without building
+	 * an intermediate string.
 	 *
-	 * @see #join(String, java.util.Collection)
+	 * @param target    Receives the joined elements.
+	 * @param delimiter Inserted as separator between consecutive non-null elements.
+	 * @param elements  The elements to join.
+	 *
+	 * @return The given target.
+	 *
+	 * @throws IOException If the target throws one.
 	 */
-	public static String join(final String delimiter, final Collection<?> elements)
+	public static <A extends Appendable> A join(final A target,
+												final String delimiter,
+												final Iterable<?> elements) throws IOException
 	{
-		if (elements == null || elements.isEmpty())
+		Assert.notNull(elements, "elements");
+		return join(target, delimiter, elements.iterator(), null);
+	}
+
+	/**
+	 * Same as {@link #join(Appendable, String, Iterable)} but lets the given <code>formatter</code> write
+	 * each element directly into the target, instead of appending its {@link Object#toString()}.
+	 *
+	 * @param formatter Writes a single element. May be <code>null</code> to append the string
+	 *                  representation of the elements.
+	 */
+	public static <T, A extends Appendable> A join(final A target,
+												   final String delimiter,
+												   final Iterator<? extends T> elements,
+												   final ElementFormatter<? super T> formatter)
+			throws IOException
+	{
+		Assert.notNull(target, "target");
+		Assert.notNull(delimiter, "delimiter");
+		Assert.notNull(elements, "elements");
+		boolean first = true;
+		while (elements.hasNext())
 		{
-			return "";
+			final T part = elements.next();
+			if (part == null)
+			{
+				continue;
+			}
+			if (!first)
+			{
+				target.append(delimiter);
+			}
+			if (formatter != null)
+			{
+				formatter.format(part, target);
+			}
+			else if (part instanceof CharSequence)
+			{
+				target.append((CharSequence) part);
+			}
+			else
+			{
+				target.append(part.toString());
+			}
+			first = false;
 		}
-		return join(delimiter, elements.toArray(new Object[elements.size()]));
+		return target;
 	}
 
+	/**
+	 * Trims the string representation of the given object and replaces all line breaks (including the
+	 * whitespace surrounding them) with <code>" \ "</code>.
+	 *
+	 * @return A single-line string or <code>null</code>, if the given object was <code>null</code>.
+	 */
 	public static String toSingleLineString(final Object object)
 	{
 		if (object != null)
 		{
-			final String s = object.toString().trim();
-			final Matcher matcher = LINE_BREAK_PATTERN.matcher(s);
-			return matcher.replaceAll(" \\\\ ");
+			final String s = object.toString();
+			final StringBuilder sb = new StringBuilder(s.length());
+			try
+			{
+				new SingleLineFlattener(sb, -1, null).append(s);
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException("StringBuilders don't throw IOExceptions", e);
+			}
+			return sb.toString();
 		}
 		return null;
 	}
 
+	/**
+	 * Streaming version of {@link #toSingleLineString(Object)}. Reads the given reader until its end or until
+	 * <code>maxLength</code> characters have been written, whichever comes first.
+	 *
+	 * @param reader           The text to flatten. Will not be closed.
+	 * @param target           Receives the flattened text.
+	 * @param maxLength        The maximum number of characters to write (not counting the
+	 *                         <code>truncationMarker</code>), or a negative value for no limit.
+	 * @param truncationMarker Appended if the text was longer than <code>maxLength</code>. May be
+	 *                         <code>null</code>.
+	 *
+	 * @return <code>true</code> if the text has been truncated.
+	 *
+	 * @throws IOException If reading or writing fails.
+	 */
+	public static boolean toSingleLineString(final Reader reader,
+											 final Appendable target,
+											 final int maxLength,
+											 final CharSequence truncationMarker) throws IOException
+	{
+		Assert.notNull(reader, "reader");
+		Assert.notNull(target, "target");
+		final SingleLineFlattener flattener = new SingleLineFlattener(target, maxLength, truncationMarker);
+		final char[] buffer = new char[4096];
+		int count = reader.read(buffer);
+		while (count >= 0)
+		{
+			if (!flattener.append(buffer, 0, count))
+			{
+				break;
+			}
+			count = reader.read(buffer);
+		}
+		return flattener.isTruncated();
+	}
+
 	public static String randomSequence(final int length)
 	{
 		return RandomSequenceGenerator.generate(length);
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.url;
+
+import de.danielbechler.util.assertion.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * Encodes text into the <code>application/x-www-form-urlencoded</code> format. The output is identical to
+ * {@link java.net.URLEncoder#encode(String, String)}, but UTF-8 is encoded by hand, straight into the target
+ * buffer, without looking up the charset or creating intermediate strings.
+ *
+ * @author Daniel Bechler
+ */
+public final class PercentEncoder
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/** ASCII characters that are written as they are. Space is handled separately. */
+	private static final boolean[] UNRESERVED = new boolean[128];
+
+	static
+	{
+		for (char c = 'a'; c <= 'z'; c++)
+		{
+			UNRESERVED[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; c++)
+		{
+			UNRESERVED[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++)
+		{
+			UNRESERVED[c] = true;
+		}
+		UNRESERVED['-'] = true;
+		UNRESERVED['_'] = true;
+		UNRESERVED['.'] = true;
+		UNRESERVED['*'] = true;
+	}
+
+	private PercentEncoder()
+	{
+	}
+
+	/**
+	 * @return The UTF-8 encoded form of the given string, or the string itself, if it doesn't contain any
+	 *         characters that need to be encoded.
+	 */
+	public static String encode(final String s)
+	{
+		return encode(s, UTF_8);
+	}
+
+	/**
+	 * @return The encoded form of the given string, or the string itself, if it doesn't contain any characters
+	 *         that need to be encoded.
+	 */
+	public static String encode(final String s, final Charset charset)
+	{
+		Assert.notNull(s, "s");
+		if (!needsEncoding(s))
+		{
+			return s;
+		}
+		return encode(s, charset, new StringBuilder(s.length() + 16)).toString();
+	}
+
+	public static boolean needsEncoding(final CharSequence s)
+	{
+		for (int i = 0, length = s.length(); i < length; i++)
+		{
+			final char c = s.charAt(i);
+			if (c >= 128 || !UNRESERVED[c])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the UTF-8 encoded form of the given text to the given builder.
+	 *
+	 * @return The given builder.
+	 */
+	public static StringBuilder encode(final CharSequence s, final StringBuilder target)
+	{
+		encodeUtf8(s, new StringBuilderOutput(target));
+		return target;
+	}
+
+	/**
+	 * Appends the encoded form of the given text to the given builder.
+	 *
+	 * @return The given builder.
+	 */
+	public static StringBuilder encode(final CharSequence s, final Charset charset, final StringBuilder target)
+	{
+		Assert.notNull(charset, "charset");
+		if (UTF_8.equals(charset))
+		{
+			return encode(s, target);
+		}
+		final int length = s.length();
+		int i = 0;
+		while (i < length)
+		{
+			final char c = s.charAt(i);
+			if (c < 128 && UNRESERVED[c])
+			{
+				target.append(c);
+				i++;
+			}
+			else if (c == ' ')
+			{
+				target.append('+');
+				i++;
+			}
+			else
+			{
+				final int runStart = i;
+				while (i < length && needsCharsetEncoding(s.charAt(i)))
+				{
+					i++;
+				}
+				final byte[] bytes = s.subSequence(runStart, i).toString().getBytes(charset);
+				for (final byte b : bytes)
+				{
+					appendEscaped(target, b);
+				}
+			}
+		}
+		return target;
+	}
+
+	private static boolean needsCharsetEncoding(final char c)
+	{
+		return c >= 128 || (!UNRESERVED[c] && c != ' ');
+	}
+
+	private static void appendEscaped(final StringBuilder target, final byte b)
+	{
+		target.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+	}
+
+	/**
+	 * Writes the UTF-8 encoded form of the given text into the given array.
+	 *
+	 * @return The offset right after the last written character.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException If the array is too small. Use {@link #encodedLength(CharSequence)}
+	 *                                        to find the required size.
+	 */
+	public static int encode(final CharSequence s, final char[] target, final int offset)
+	{
+		final CharArrayOutput output = new CharArrayOutput(target, offset);
+		encodeUtf8(s, output);
+		return output.position;
+	}
+
+	/**
+	 * Writes the UTF-8 encoded form of the given text as ASCII bytes into the given buffer.
+	 *
+	 * @throws BufferOverflowException If the buffer is too small.
+	 */
+	public static ByteBuffer encode(final CharSequence s, final ByteBuffer target)
+	{
+		encodeUtf8(s, new ByteBufferOutput(target));
+		return target;
+	}
+
+	/** @return The number of characters the UTF-8 encoded form of the given text consists of. */
+	public static int encodedLength(final CharSequence s)
+	{
+		final LengthOutput output = new LengthOutput();
+		encodeUtf8(s, output);
+		return output.length;
+	}
+
+	private static void encodeUtf8(final CharSequence s, final Output output)
+	{
+		final int length = s.length();
+		for (int i = 0; i < length; i++)
+		{
+			final char c = s.charAt(i);
+			if (c < 128)
+			{
+				if (UNRESERVED[c])
+				{
+					output.put(c);
+				}
+				else if (c == ' ')
+				{
+					output.put('+');
+				}
+				else
+				{
+					putEscaped(output, c);
+				}
+			}
+			else if (c < 0x800)
+			{
+				putEscaped(output, 0xC0 | (c >> 6));
+				putEscaped(output, 0x80 | (c & 0x3F));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1)))
+			{
+				final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				putEscaped(output, 0xF0 | (codePoint >> 18));
+				putEscaped(output, 0x80 | ((codePoint >> 12) & 0x3F));
+				putEscaped(output, 0x80 | ((codePoint >> 6) & 0x3F));
+				putEscaped(output, 0x80 | (codePoint & 0x3F));
+			}
+			else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c))
+			{
+				// unpaired surrogates are replaced with '?', just like String#getBytes does
+				putEscaped(output, '?');
+			}
+			else
+			{
+				putEscaped(output, 0xE0 | (c >> 12));
+				putEscaped(output, 0x80 | ((c >> 6) & 0x3F));
+				putEscaped(output, 0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	private static void putEscaped(final Output output, final int b)
+	{
+		output.put('%');
+		output.put(HEX_DIGITS[(b >> 4) & 0x0F]);
+		output.put(HEX_DIGITS[b & 0x0F]);
+	}
+
+	private interface Output
+	{
+		void put(char c);
+	}
+
+	private static final class StringBuilderOutput implements Output
+	{
+		private final StringBuilder target;
+
+		private StringBuilderOutput(final StringBuilder target)
+		{
+			this.target = target;
+		}
+
+		@Override
+		public void put(final char c)
+		{
+			target.append(c);
+		}
+	}
+
+	private static final class CharArrayOutput implements Output
+	{
+		private final char[] target;
+		private int position;
+
+		private CharArrayOutput(final char[] target, final int offset)
+		{
+			this.target = target;
+			this.position = offset;
+		}
+
+		@Override
+		public void put(final char c)
+		{
+			target[position++] = c;
+		}
+	}
+
+	private static final class ByteBufferOutput implements Output
+	{
+		private final ByteBuffer target;
+
+		private ByteBufferOutput(final ByteBuffer target)
+		{
+			this.target = target;
+		}
+
+		@Override
+		public void put(final char c)
+		{
+			target.put((byte) c);
+		}
+	}
+
+	private static final class LengthOutput implements Output
+	{
+		private int length;
+
+		@Override
+		public void put(final char c)
+		{
+			length++;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.url;
+
+import de.danielbechler.util.assertion.*;
+
+import java.nio.charset.*;
+
+/**
+ * Parses <code>application/x-www-form-urlencoded</code> query strings into read-only {@link UrlParameters}.
+ * <p/>
+ * The query string is scanned once. Parameter names are decoded right away, but values are only decoded
+ * (with the same rules as {@link java.net.URLDecoder}) when they are first read. Parameters without a value
+ * (<code>a&amp;b=1</code>) get an empty one, empty names are skipped and when a name occurs more than once, the
+ * last occurrence wins.
+ *
+ * @author Daniel Bechler
+ */
+public final class QueryStringParser
+{
+	private QueryStringParser()
+	{
+	}
+
+	/** Parses the given UTF-8 encoded query string. A leading <code>'?'</code> is ignored. */
+	public static UrlParameters parse(final CharSequence queryString)
+	{
+		return parse(queryString, UrlParameters.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Parses the given query string. A leading <code>'?'</code> is ignored.
+	 *
+	 * @throws IllegalArgumentException If a parameter name contains a malformed escape sequence. Malformed
+	 *                                  values are only reported when they are read.
+	 */
+	public static UrlParameters parse(final CharSequence queryString, final Charset charset)
+	{
+		Assert.notNull(queryString, "queryString");
+		Assert.notNull(charset, "charset");
+		final String source = queryString.toString();
+		final UrlParameters parameters = new UrlParameters(source, charset);
+		final int length = source.length();
+		int start = length > 0 && source.charAt(0) == '?' ? 1 : 0;
+		while (start < length)
+		{
+			// look for both delimiters in one pass, so a parameter without '=' doesn't scan the rest of the source
+			int end = start;
+			int separator = -1;
+			while (end < length)
+			{
+				final char c = source.charAt(end);
+				if (c == '&')
+				{
+					break;
+				}
+				if (c == '=' && separator < 0)
+				{
+					separator = end;
+				}
+				end++;
+			}
+			if (separator < 0)
+			{
+				separator = end;
+			}
+			if (separator > start)
+			{
+				final String name = decode(source, start, separator, charset);
+				final int valueStart = Math.min(separator + 1, end);
+				parameters.putEncoded(name, valueStart, end);
+			}
+			start = end + 1;
+		}
+		return parameters;
+	}
+
+	/** Decodes the given region of the given string. Returns a plain substring if there is nothing to decode. */
+	static String decode(final String s, final int start, final int end, final Charset charset)
+	{
+		int i = start;
+		while (i < end && s.charAt(i) != '%' && s.charAt(i) != '+')
+		{
+			i++;
+		}
+		if (i == end)
+		{
+			return s.substring(start, end);
+		}
+		final StringBuilder sb = new StringBuilder(end - start);
+		sb.append(s, start, i);
+		byte[] bytes = null;
+		while (i < end)
+		{
+			final char c = s.charAt(i);
+			if (c == '+')
+			{
+				sb.append(' ');
+				i++;
+			}
+			else if (c == '%')
+			{
+				if (bytes == null)
+				{
+					bytes = new byte[(end - i) / 3];
+				}
+				int count = 0;
+				while (i < end && s.charAt(i) == '%')
+				{
+					if (i + 2 >= end)
+					{
+						throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+					}
+					bytes[count++] = (byte) ((hexValue(s.charAt(i + 1)) << 4) | hexValue(s.charAt(i + 2)));
+					i += 3;
+				}
+				sb.append(new String(bytes, 0, count, charset));
+			}
+			else
+			{
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int hexValue(final char c)
+	{
+		final int value = Character.digit(c, 16);
+		if (value < 0)
+		{
+			throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern");
+		}
+		return value;
+	}
+}
@@ -16,51 +16,197 @@
 
 package de.danielbechler.util.url;
 
+import de.danielbechler.util.assertion.*;
 import de.danielbechler.util.text.*;
 
-import java.io.*;
-import java.lang.IllegalArgumentException;
 import java.lang.Iterable;
 import java.lang.Override;
 import java.lang.String;
 import java.lang.StringBuilder;
-import java.net.*;
 import java.nio.charset.*;
 import java.util.*;
 
-/** @author Daniel Bechler */
+/**
+ * A sorted set of URL parameters.
+ * <p/>
+ * Names and values are kept in two parallel arrays sorted by name, which keeps lookups at O(log n) and makes
+ * iterating and merging cheap. The encoded query string is cached until the parameters change.
+ * <p/>
+ * Instances created by {@link QueryStringParser} are read-only views of the parsed query string, which only
+ * decode the values that are actually read. Use {@link #mutableCopy()} to get a modifiable instance.
+ *
+ * @author Daniel Bechler
+ */
 public final class UrlParameters
 {
 	public static final Charset DEFAULT_CHARSET = Charset.forName("utf-8");
 
-	private final Map<String, String> parameters = new TreeMap<String, String>();
+	private static final String[] EMPTY = new String[0];
+
+	private String[] names = EMPTY;
+	private String[] values = EMPTY;
+	private int size;
+	private int modificationCount;
+
+	/** Replaced as a whole, so readers never see the string of one charset paired with another charset. */
+	private EncodedQueryString encodedQueryString;
+
+	/** The parsed query string, if this is a read-only view created by {@link QueryStringParser}. */
+	private final String source;
+	private final Charset sourceCharset;
+
+	/** Start and end offset of every encoded value within <code>source</code>. */
+	private int[] valueRanges;
+
+	public UrlParameters()
+	{
+		this(null, null);
+	}
+
+	UrlParameters(final String source, final Charset sourceCharset)
+	{
+		this.source = source;
+		this.sourceCharset = sourceCharset;
+		this.valueRanges = source != null ? new int[0] : null;
+	}
+
+	/** @return <code>true</code> if this is a read-only view of a parsed query string. */
+	public boolean isReadOnly()
+	{
+		return source != null;
+	}
+
+	/** @return A modifiable copy of this instance. */
+	public UrlParameters mutableCopy()
+	{
+		final UrlParameters copy = new UrlParameters();
+		copy.names = Arrays.copyOf(names, size);
+		copy.values = new String[size];
+		for (int i = 0; i < size; i++)
+		{
+			copy.values[i] = valueAt(i);
+		}
+		copy.size = size;
+		return copy;
+	}
 
 	public UrlParameters set(final java.lang.String name, final String value)
 	{
+		Assert.notNull(name, "name");
+		assertModifiable();
+		final int index = indexOf(name);
 		if (value != null)
 		{
-			parameters.put(name, value);
+			if (index >= 0)
+			{
+				if (!value.equals(values[index]))
+				{
+					values[index] = value;
+					modified();
+				}
+			}
+			else
+			{
+				insert(-(index + 1), name, value);
+			}
 		}
-		else
+		else if (index >= 0)
 		{
-			parameters.remove(name);
+			removeAt(index);
 		}
 		return this;
 	}
 
+	private void assertModifiable()
+	{
+		if (isReadOnly())
+		{
+			throw new UnsupportedOperationException("Parsed parameters are read-only. " +
+					"Use mutableCopy() to modify them.");
+		}
+	}
+
+	private int indexOf(final String name)
+	{
+		return Arrays.binarySearch(names, 0, size, name);
+	}
+
+	/** Called by {@link QueryStringParser} to add a parameter whose value hasn't been decoded yet. */
+	void putEncoded(final String name, final int valueStart, final int valueEnd)
+	{
+		int index = indexOf(name);
+		if (index < 0)
+		{
+			index = -(index + 1);
+			insert(index, name, null);
+			if (valueRanges.length < names.length * 2)
+			{
+				valueRanges = Arrays.copyOf(valueRanges, names.length * 2);
+			}
+			System.arraycopy(valueRanges, index * 2, valueRanges, index * 2 + 2, (size - index - 1) * 2);
+		}
+		valueRanges[index * 2] = valueStart;
+		valueRanges[index * 2 + 1] = valueEnd;
+	}
+
+	private String valueAt(final int index)
+	{
+		String value = values[index];
+		if (value == null)
+		{
+			value = QueryStringParser.decode(source, valueRanges[index * 2], valueRanges[index * 2 + 1],
+					sourceCharset);
+			values[index] = value;
+		}
+		return value;
+	}
+
+	private void insert(final int index, final String name, final String value)
+	{
+		if (size == names.length)
+		{
+			final int capacity = Math.max(4, size * 2);
+			names = Arrays.copyOf(names, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		System.arraycopy(names, index, names, index + 1, size - index);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		names[index] = name;
+		values[index] = value;
+		size++;
+		modified();
+	}
+
+	private void removeAt(final int index)
+	{
+		System.arraycopy(names, index + 1, names, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		names[size] = null;
+		values[size] = null;
+		modified();
+	}
+
+	private void modified()
+	{
+		modificationCount++;
+		encodedQueryString = null;
+	}
+
 	public boolean has(final String name)
 	{
-		return parameters.containsKey(name);
+		return indexOf(name) >= 0;
 	}
 
 	public String get(final String name)
 	{
-		return parameters.get(name);
+		final int index = indexOf(name);
+		return index >= 0 ? valueAt(index) : null;
 	}
 
 	public int size()
 	{
-		return parameters.size();
+		return size;
 	}
 
 	public boolean isEmpty()
@@ -68,65 +214,102 @@ public final class UrlParameters
 		return size() == 0;
 	}
 
+	/**
+	 * @return A read-only view of the parameter names in ascending order. Iterating it while modifying the
+	 *         parameters causes a {@link ConcurrentModificationException}.
+	 */
 	public Iterable<String> getParameterNames()
 	{
-		return new TreeSet<String>(parameters.keySet());
+		return new Iterable<String>()
+		{
+			@Override
+			public Iterator<String> iterator()
+			{
+				return new NameIterator();
+			}
+		};
 	}
 
+	/**
+	 * Adds all parameters of the given instance to this one. Parameters that exist in both are overwritten
+	 * with the values of the given instance.
+	 */
 	public void merge(final UrlParameters parameters)
 	{
-		if (parameters == null)
+		assertModifiable();
+		if (parameters == null || parameters.isEmpty() || parameters == this)
 		{
 			return;
 		}
-		for (final String name : parameters.getParameterNames())
+		final String[] mergedNames = new String[size + parameters.size];
+		final String[] mergedValues = new String[mergedNames.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < size && j < parameters.size)
 		{
-			set(name, parameters.get(name));
+			final int comparison = names[i].compareTo(parameters.names[j]);
+			if (comparison < 0)
+			{
+				mergedNames[k] = names[i];
+				mergedValues[k++] = values[i++];
+			}
+			else
+			{
+				if (comparison == 0)
+				{
+					i++;
+				}
+				mergedNames[k] = parameters.names[j];
+				mergedValues[k++] = parameters.valueAt(j++);
+			}
 		}
+		while (i < size)
+		{
+			mergedNames[k] = names[i];
+			mergedValues[k++] = values[i++];
+		}
+		while (j < parameters.size)
+		{
+			mergedNames[k] = parameters.names[j];
+			mergedValues[k++] = parameters.valueAt(j++);
+		}
+		names = mergedNames;
+		values = mergedValues;
+		size = k;
+		modified();
 	}
 
 	public String toQueryString(final Charset charset)
 	{
-		final StringBuilder sb = new StringBuilder();
-		final Iterator<String> namesIterator = getParameterNames().iterator();
-		while (namesIterator.hasNext())
+		final EncodedQueryString cached = encodedQueryString;
+		if (cached != null && cached.charset.equals(charset))
 		{
-			final String name = namesIterator.next();
-			final String value = get(name);
-			sb.append(encodedKeyValueStringOf(name, value, charset));
-			if (namesIterator.hasNext())
+			return cached.value;
+		}
+		final StringBuilder sb = StringBuilderCache.acquire(size * 16);
+		for (int i = 0; i < size; i++)
+		{
+			if (i > 0)
 			{
 				sb.append('&');
 			}
+			appendEncodedKeyValueString(sb, names[i], valueAt(i), charset);
 		}
-		return sb.toString();
+		final String queryString = StringBuilderCache.toStringAndRelease(sb);
+		encodedQueryString = new EncodedQueryString(charset, queryString);
+		return queryString;
 	}
 
-	private static String encodedKeyValueStringOf(final String name,
-												  final String value,
-												  final Charset charset)
+	private static void appendEncodedKeyValueString(final StringBuilder sb,
+													final String name,
+													final String value,
+													final Charset charset)
 	{
-		final String encodedValue;
+		sb.append(name).append('=');
 		if (StringUtils.hasText(value))
 		{
-			encodedValue = encode(value, charset.name());
-		}
-		else
-		{
-			encodedValue = "";
-		}
-		return new StringBuilder(name).append('=').append(encodedValue).toString();
-	}
-
-	private static String encode(final String value, final String encoding)
-	{
-		try
-		{
-			return URLEncoder.encode(value, encoding);
-		}
-		catch (UnsupportedEncodingException e)
-		{
-			throw new IllegalArgumentException("The given encoding is not supported.", e);
+			PercentEncoder.encode(value, charset, sb);
 		}
 	}
 
@@ -140,4 +323,48 @@ public final class UrlParameters
 	{
 		return toQueryString(charset);
 	}
+
+	private final class NameIterator implements Iterator<String>
+	{
+		private final int expectedModificationCount = modificationCount;
+		private int index;
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < size;
+		}
+
+		@Override
+		public String next()
+		{
+			if (modificationCount != expectedModificationCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			if (index >= size)
+			{
+				throw new NoSuchElementException();
+			}
+			return names[index++];
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final class EncodedQueryString
+	{
+		private final Charset charset;
+		private final String value;
+
+		private EncodedQueryString(final Charset charset, final String value)
+		{
+			this.charset = charset;
+			this.value = value;
+		}
+	}
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class AvatarCacheTest
+{
+	private static final String HASH = "0123456789abcdef0123456789abcdef";
+	private static final byte[] IMAGE = {1, 2, 3, 4};
+
+	private File directory;
+	private StubTransport transport;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = File.createTempFile("avatars", "");
+		assertTrue(directory.delete() && directory.mkdir());
+		transport = new StubTransport();
+	}
+
+	@After
+	public void tearDown()
+	{
+		final File[] files = directory.listFiles();
+		if (files != null)
+		{
+			for (final File file : files)
+			{
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testFetchesOverHttpsAndServesFreshAvatarsFromDisk() throws IOException
+	{
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_OK, IMAGE, "image/png", "\"v1\"",
+				1000L));
+		final AvatarCache cache = new AvatarCache(directory, transport, 1, TimeUnit.HOURS);
+
+		final AvatarCache.Avatar avatar = cache.get(HASH, 80, GravatarUrlBuilder.Rating.G);
+		assertArrayEquals(IMAGE, avatar.getData());
+		assertEquals("image/png", avatar.getContentType());
+		assertEquals("\"v1\"", avatar.getEtag());
+		assertEquals(1000L, avatar.getLastModified());
+		assertEquals(1, transport.requests.size());
+		assertTrue(transport.requests.get(0).url, transport.requests.get(0).url.startsWith("https://"));
+		assertNull(transport.requests.get(0).etag);
+
+		assertArrayEquals(IMAGE, cache.get(HASH, 80, GravatarUrlBuilder.Rating.G).getData());
+		assertEquals(1, transport.requests.size());
+	}
+
+	@Test
+	public void testRevalidatesStaleAvatarsWithConditionalRequest() throws IOException
+	{
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_OK, IMAGE, "image/png", "\"v1\"",
+				1000L));
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_NOT_MODIFIED, null, null, null,
+				0L));
+		final AvatarCache cache = new AvatarCache(directory, transport, 0, TimeUnit.MILLISECONDS);
+
+		cache.get(HASH, 80, null);
+		final AvatarCache.Avatar avatar = cache.get(HASH, 80, null);
+		assertArrayEquals(IMAGE, avatar.getData());
+		assertEquals("\"v1\"", avatar.getEtag());
+		assertEquals(2, transport.requests.size());
+		assertEquals("\"v1\"", transport.requests.get(1).etag);
+		assertEquals(1000L, transport.requests.get(1).lastModified);
+	}
+
+	@Test
+	public void testRemembersMissingAvatars() throws IOException
+	{
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_NOT_FOUND, null, null, null,
+				0L));
+		final AvatarCache cache = new AvatarCache(directory, transport, 1, TimeUnit.HOURS);
+
+		assertNull(cache.get(HASH, 80, null));
+		assertNull(cache.get(HASH, 80, null));
+		assertEquals(1, transport.requests.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnexpectedStatusCodeFails() throws IOException
+	{
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_INTERNAL_ERROR, null, null,
+				null, 0L));
+		new AvatarCache(directory, transport, 1, TimeUnit.HOURS).get(HASH, 80, null);
+	}
+
+	@Test
+	public void testRejectsHashesWithNonHexCharacters() throws IOException
+	{
+		final AvatarCache cache = new AvatarCache(directory, transport, 1, TimeUnit.HOURS);
+		// fullwidth and Arabic-Indic digits, which Character.digit accepts
+		for (final String hash : new String[]{"../etc", "abc\uff11", "abc\u0661", "abcg"})
+		{
+			try
+			{
+				cache.get(hash, 80, null);
+				fail("Expected " + hash + " to be rejected");
+			}
+			catch (IllegalArgumentException e)
+			{
+				// expected
+			}
+		}
+		assertTrue(transport.requests.isEmpty());
+
+		transport.responses.add(new AvatarTransport.Response(HttpURLConnection.HTTP_NOT_FOUND, null, null, null,
+				0L));
+		assertNull(cache.get("ABCDEF0123456789", 80, null));
+		assertEquals(1, transport.requests.size());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareASingleFetch() throws Exception
+	{
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final AtomicInteger fetchCount = new AtomicInteger();
+		final AvatarTransport blockingTransport = new AvatarTransport()
+		{
+			@Override
+			public Response fetch(final String url, final String etag, final long lastModified)
+					throws IOException
+			{
+				fetchCount.incrementAndGet();
+				entered.countDown();
+				try
+				{
+					proceed.await();
+				}
+				catch (InterruptedException e)
+				{
+					throw new InterruptedIOException();
+				}
+				return new Response(HttpURLConnection.HTTP_OK, IMAGE, "image/png", null, 0L);
+			}
+		};
+		final AvatarCache cache = new AvatarCache(directory, blockingTransport, 1, TimeUnit.HOURS);
+		final int threadCount = 4;
+		final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			final List<Future<AvatarCache.Avatar>> futures = new ArrayList<Future<AvatarCache.Avatar>>();
+			for (int i = 0; i < threadCount; i++)
+			{
+				futures.add(executorService.submit(new Callable<AvatarCache.Avatar>()
+				{
+					@Override
+					public AvatarCache.Avatar call() throws Exception
+					{
+						return cache.get(HASH, 80, null);
+					}
+				}));
+			}
+			assertTrue(entered.await(10, TimeUnit.SECONDS));
+			// give the other threads time to join the running fetch
+			Thread.sleep(200);
+			proceed.countDown();
+			for (final Future<AvatarCache.Avatar> future : futures)
+			{
+				assertArrayEquals(IMAGE, future.get(10, TimeUnit.SECONDS).getData());
+			}
+		}
+		finally
+		{
+			executorService.shutdownNow();
+		}
+		assertEquals(1, fetchCount.get());
+	}
+
+	private static final class StubTransport implements AvatarTransport
+	{
+		private final Queue<Response> responses = new LinkedList<Response>();
+		private final List<Request> requests = new ArrayList<Request>();
+
+		@Override
+		public Response fetch(final String url, final String etag, final long lastModified)
+		{
+			requests.add(new Request(url, etag, lastModified));
+			final Response response = responses.poll();
+			assertNotNull("Unexpected request for " + url, response);
+			return response;
+		}
+	}
+
+	private static final class Request
+	{
+		private final String url;
+		private final String etag;
+		private final long lastModified;
+
+		private Request(final String url, final String etag, final long lastModified)
+		{
+			this.url = url;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class GravatarHashCacheTest
+{
+	@Test
+	public void testEmailToHashCountsHitsAndMisses()
+	{
+		final GravatarHashCache cache = new GravatarHashCache();
+		assertEquals(0, cache.getHitRate(), 0);
+		final String hash = cache.emailToHash("a@example.com");
+		assertEquals(GravatarUrlBuilder.emailToHash("a@example.com"), hash);
+		assertSame(hash, cache.emailToHash("a@example.com"));
+		cache.emailToHash("b@example.com");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testSizeIsBounded()
+	{
+		final GravatarHashCache cache = new GravatarHashCache(16);
+		for (int i = 0; i < 100; i++)
+		{
+			final String emailAddress = "user" + i + "@example.com";
+			assertEquals(GravatarUrlBuilder.emailToHash(emailAddress), cache.emailToHash(emailAddress));
+		}
+		assertTrue(cache.size() <= 16);
+		assertEquals(100, cache.getMissCount());
+	}
+
+	@Test
+	public void testClearResetsStatistics()
+	{
+		final GravatarHashCache cache = new GravatarHashCache();
+		cache.emailToHash("a@example.com");
+		cache.emailToHash("a@example.com");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testForEmailAddress()
+	{
+		final GravatarHashCache cache = new GravatarHashCache();
+		assertEquals(GravatarUrlBuilder.forEmailAddress("a@example.com").toRequestUrl(),
+				cache.forEmailAddress("a@example.com").toRequestUrl());
+	}
+
+	@Test
+	public void testForEmailAddressesWithCache()
+	{
+		final GravatarHashCache cache = new GravatarHashCache();
+		final List<String> emailAddresses = Arrays.asList("a@example.com", "b@example.com", "a@example.com");
+		final GravatarUrlTemplate template = GravatarUrlBuilder.forDummyHash().toTemplate();
+		assertEquals(template.forEmailAddresses(emailAddresses), template.forEmailAddresses(emailAddresses, cache));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmailToHashRejectsEmptyAddress()
+	{
+		new GravatarHashCache().emailToHash("");
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.api;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class GravatarUrlTemplateTest
+{
+	private static final String HASH = "0123456789abcdef0123456789abcdef";
+
+	@Test
+	public void testToRequestUrl()
+	{
+		assertEquals("http://www.gravatar.com/avatar/" + HASH + "?d=404&r=g&s=200",
+				GravatarUrlBuilder.forHash(HASH).toRequestUrl());
+		assertEquals("https://secure.gravatar.com/avatar/" + HASH + "?d=mm&f=y&r=x&s=80",
+				GravatarUrlBuilder.forHash(HASH)
+						.secure(true)
+						.withSize(80)
+						.withDefaultImage(GravatarUrlBuilder.DefaultImage.MYSTERY_MAN)
+						.withForceDefault(true)
+						.withRating(GravatarUrlBuilder.Rating.X)
+						.toRequestUrl());
+		assertEquals("http://www.gravatar.com/avatar/" + HASH,
+				GravatarUrlBuilder.forHash(HASH).withSize(0).withDefaultImage(null).withRating(null).toRequestUrl());
+	}
+
+	@Test
+	public void testDefaultImageIsEncoded()
+	{
+		assertEquals("http://www.gravatar.com/avatar/" + HASH + "?d=http%3A%2F%2Fexample.com%2Fa+b.png&r=g&s=200",
+				GravatarUrlBuilder.forHash(HASH)
+						.withDefaultImage(GravatarUrlBuilder.DefaultImage.custom("http://example.com/a b.png"))
+						.toRequestUrl());
+	}
+
+	@Test
+	public void testTemplatesAreSharedPerOptions()
+	{
+		final GravatarUrlTemplate template = GravatarUrlBuilder.forDummyHash().withSize(42).toTemplate();
+		assertSame(template, GravatarUrlBuilder.forHash(HASH).withSize(42).toTemplate());
+		assertNotSame(template, GravatarUrlBuilder.forHash(HASH).withSize(43).toTemplate());
+		assertEquals("http://www.gravatar.com/avatar/{hash}?d=404&r=g&s=42", template.toString());
+	}
+
+	/** More combinations of options than templates are cached must still create the right URLs. */
+	@Test
+	public void testManyDifferentOptions()
+	{
+		for (int round = 0; round < 2; round++)
+		{
+			for (int size = 1; size <= 200; size++)
+			{
+				assertEquals("https://secure.gravatar.com/avatar/" + HASH + "?d=404&r=pg&s=" + size,
+						GravatarUrlBuilder.forHash(HASH)
+								.secure(true)
+								.withSize(size)
+								.withRating(GravatarUrlBuilder.Rating.PG)
+								.toRequestUrl());
+			}
+		}
+	}
+
+	@Test
+	public void testForEmailAddressesKeepsOrder()
+	{
+		final GravatarUrlTemplate template = GravatarUrlBuilder.forDummyHash().toTemplate();
+		final List<String> emailAddresses = Arrays.asList("b@example.com", "a@example.com", " B@Example.com ");
+		final List<String> urls = template.forEmailAddresses(emailAddresses);
+		assertEquals(3, urls.size());
+		for (int i = 0; i < urls.size(); i++)
+		{
+			assertEquals(GravatarUrlBuilder.forEmailAddress(emailAddresses.get(i)).toRequestUrl(), urls.get(i));
+		}
+		assertEquals(urls.get(0), urls.get(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testToRequestUrlRejectsEmptyHash()
+	{
+		GravatarUrlBuilder.forDummyHash().toTemplate().toRequestUrl("");
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.assertion;
+
+import org.junit.*;
+
+import java.lang.management.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class AssertTest
+{
+	@Test
+	public void testHasTextAcceptsText()
+	{
+		Assert.hasText("  a ", "value");
+		Assert.hasText(new StringBuilder("a"), "value");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHasTextRejectsNull()
+	{
+		Assert.hasText((CharSequence) null, "value");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHasTextRejectsWhitespace()
+	{
+		Assert.hasText(new StringBuilder(" \t\n"), "value");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHasTextRejectsMissingName()
+	{
+		Assert.hasText("a", " ");
+	}
+
+	@Test
+	public void testNotEmptyReturnsValue()
+	{
+		final StringBuilder value = new StringBuilder(" a");
+		assertSame(value, Assert.notEmpty(value, "value"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotEmptyRejectsWhitespace()
+	{
+		Assert.notEmpty("   ", "value");
+	}
+
+	@Test
+	public void testPassingAssertionsDoNotAllocate()
+	{
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+		Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+		final StringBuilder value = new StringBuilder("          value          ");
+		final long threadId = Thread.currentThread().getId();
+		for (int round = 0; round < 2; round++)
+		{
+			final long before = bean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < 10000; i++)
+			{
+				Assert.hasText(value, "value");
+				Assert.notEmpty(value, "value");
+			}
+			final long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+			// the first round warms up, only the second one counts
+			if (round == 1)
+			{
+				assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.collection;
+
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class BulkExecutorTest
+{
+	private ExecutorService executorService;
+
+	@Before
+	public void setUp()
+	{
+		executorService = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown()
+	{
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testMapKeepsSourceOrder()
+	{
+		final List<Integer> items = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++)
+		{
+			items.add(i);
+		}
+		final List<Integer> results = BulkExecutor.create()
+				.withExecutor(executorService)
+				.withParallelism(4)
+				.withBatchSize(7)
+				.map(items, new BulkExecutor.Mapper<Integer, Integer>()
+				{
+					@Override
+					public Integer map(final Integer item)
+					{
+						return item * 2;
+					}
+				});
+		for (int i = 0; i < items.size(); i++)
+		{
+			assertEquals(Integer.valueOf(i * 2), results.get(i));
+		}
+	}
+
+	@Test
+	public void testMapIteratorKeepsSourceOrder()
+	{
+		final List<Integer> items = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++)
+		{
+			items.add(i);
+		}
+		final List<Integer> results = BulkExecutor.create()
+				.withExecutor(executorService)
+				.withParallelism(4)
+				.withBatchSize(3)
+				.map(items.iterator(), new BulkExecutor.Mapper<Integer, Integer>()
+				{
+					@Override
+					public Integer map(final Integer item)
+					{
+						return item + 1;
+					}
+				});
+		assertEquals(items.size(), results.size());
+		for (int i = 0; i < items.size(); i++)
+		{
+			assertEquals(Integer.valueOf(i + 1), results.get(i));
+		}
+	}
+
+	@Test
+	public void testForEachStopsAllWorkersBeforeRethrowing() throws Exception
+	{
+		final List<Integer> items = new ArrayList<Integer>();
+		for (int i = 0; i < 200; i++)
+		{
+			items.add(i);
+		}
+		final AtomicInteger visited = new AtomicInteger();
+		try
+		{
+			BulkExecutor.create()
+					.withExecutor(executorService)
+					.withParallelism(4)
+					.withBatchSize(1)
+					.forEach(items, new BulkExecutor.Visitor<Integer>()
+					{
+						@Override
+						public void visit(final Integer item) throws Exception
+						{
+							if (item == 10)
+							{
+								throw new IllegalStateException("failed");
+							}
+							try
+							{
+								Thread.sleep(5);
+							}
+							catch (InterruptedException ignored)
+							{
+								// keep going to make sure the caller waits for us nonetheless
+							}
+							visited.incrementAndGet();
+						}
+					});
+			fail("Expected the failure of the visitor to be rethrown");
+		}
+		catch (IllegalStateException e)
+		{
+			assertEquals("failed", e.getMessage());
+		}
+		final int visitedWhenThrown = visited.get();
+		Thread.sleep(50);
+		assertEquals(visitedWhenThrown, visited.get());
+		assertTrue(visitedWhenThrown < items.size() - 1);
+	}
+
+	@Test(timeout = 10000)
+	public void testNestedCallsOnBoundedPoolDontDeadlock()
+	{
+		final ExecutorService pool = Executors.newFixedThreadPool(2);
+		try
+		{
+			final List<Integer> items = new ArrayList<Integer>();
+			for (int i = 0; i < 16; i++)
+			{
+				items.add(i);
+			}
+			final BulkExecutor bulkExecutor = BulkExecutor.create()
+					.withExecutor(pool)
+					.withParallelism(4)
+					.withBatchSize(1);
+			final List<Integer> sums = bulkExecutor.map(items, new BulkExecutor.Mapper<Integer, Integer>()
+			{
+				@Override
+				public Integer map(final Integer item)
+				{
+					int sum = 0;
+					for (final Integer inner : bulkExecutor.map(items, new BulkExecutor.Mapper<Integer, Integer>()
+					{
+						@Override
+						public Integer map(final Integer innerItem)
+						{
+							return innerItem;
+						}
+					}))
+					{
+						sum += inner;
+					}
+					return sum + item;
+				}
+			});
+			for (int i = 0; i < items.size(); i++)
+			{
+				assertEquals(Integer.valueOf(120 + i), sums.get(i));
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 2000)
+	public void testMapDoesNotWaitForTasksThatNeverStarted() throws Exception
+	{
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		final CountDownLatch release = new CountDownLatch(1);
+		try
+		{
+			// keeps the only thread of the pool busy, so the submitted workers never start
+			pool.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						release.await();
+					}
+					catch (InterruptedException ignored)
+					{
+					}
+				}
+			});
+			final List<Integer> items = Arrays.asList(1, 2, 3, 4);
+			final List<Integer> results = BulkExecutor.create()
+					.withExecutor(pool)
+					.withParallelism(4)
+					.withBatchSize(1)
+					.map(items, new BulkExecutor.Mapper<Integer, Integer>()
+					{
+						@Override
+						public Integer map(final Integer item)
+						{
+							return -item;
+						}
+					});
+			assertEquals(Arrays.asList(-1, -2, -3, -4), results);
+		}
+		finally
+		{
+			release.countDown();
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.concurrent;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class BoundedCacheTest
+{
+	@Test
+	public void testPutIfAbsentReturnsCachedValue()
+	{
+		final BoundedCache<String, String> cache = new BoundedCache<String, String>(4);
+		assertEquals("a", cache.putIfAbsent("key", "a"));
+		assertEquals("a", cache.putIfAbsent("key", "b"));
+		assertEquals("a", cache.get("key"));
+	}
+
+	@Test
+	public void testNeverExceedsMaximumSize()
+	{
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(16);
+		for (int i = 0; i < 1000; i++)
+		{
+			cache.putIfAbsent(i, i);
+			assertTrue(cache.size() <= 16);
+		}
+		assertEquals(16, cache.size());
+	}
+
+	@Test
+	public void testKeepsFrequentlyUsedEntries()
+	{
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(16);
+		// small integers hash into the lowest buckets, which used to be evicted first
+		for (int hot = 0; hot < 4; hot++)
+		{
+			cache.putIfAbsent(hot, hot);
+		}
+		for (int i = 1000; i < 10000; i++)
+		{
+			for (int hot = 0; hot < 4; hot++)
+			{
+				assertEquals("Evicted hot key " + hot + " at " + i, Integer.valueOf(hot), cache.get(hot));
+			}
+			cache.putIfAbsent(i, i);
+		}
+	}
+
+	@Test
+	public void testRemoveFreesSlot()
+	{
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(2);
+		cache.putIfAbsent(1, 1);
+		cache.putIfAbsent(2, 2);
+		cache.remove(1);
+		cache.putIfAbsent(3, 3);
+		assertEquals(Integer.valueOf(2), cache.get(2));
+		assertEquals(Integer.valueOf(3), cache.get(3));
+		assertNull(cache.get(1));
+	}
+
+	@Test
+	public void testClear()
+	{
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(2);
+		cache.putIfAbsent(1, 1);
+		cache.putIfAbsent(2, 2);
+		cache.clear();
+		assertEquals(0, cache.size());
+		cache.putIfAbsent(3, 3);
+		cache.putIfAbsent(4, 4);
+		assertEquals(2, cache.size());
+	}
+}
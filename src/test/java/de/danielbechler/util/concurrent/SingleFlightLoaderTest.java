@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.concurrent;
+
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class SingleFlightLoaderTest
+{
+	private static final int THREAD_COUNT = 4;
+
+	private ExecutorService executorService;
+
+	@Before
+	public void setUp()
+	{
+		executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+	}
+
+	@After
+	public void tearDown()
+	{
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallersShareOneLoad() throws Exception
+	{
+		final BlockingLoader loader = new BlockingLoader(null);
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(loader);
+		final List<Future<String>> futures = getConcurrently(flights, "key");
+		loader.release();
+		for (final Future<String> future : futures)
+		{
+			assertEquals("value of key", future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, loader.loadCount.get());
+		assertEquals(0, flights.size());
+	}
+
+	@Test
+	public void testConcurrentCallersShareTheSameException() throws Exception
+	{
+		final IllegalStateException failure = new IllegalStateException("failed");
+		final BlockingLoader loader = new BlockingLoader(failure);
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(loader);
+		final List<Future<String>> futures = getConcurrently(flights, "key");
+		loader.release();
+		for (final Future<String> future : futures)
+		{
+			try
+			{
+				future.get(10, TimeUnit.SECONDS);
+				fail("Expected the failure of the loader");
+			}
+			catch (ExecutionException e)
+			{
+				assertSame(failure, e.getCause());
+			}
+		}
+		assertEquals(1, loader.loadCount.get());
+	}
+
+	@Test
+	public void testFailedLoadsAreNotKept()
+	{
+		final AtomicInteger loadCount = new AtomicInteger();
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(
+				new SingleFlightLoader.Loader<String, String>()
+				{
+					@Override
+					public String load(final String key) throws Exception
+					{
+						if (loadCount.incrementAndGet() == 1)
+						{
+							throw new IOException("failed");
+						}
+						return "value";
+					}
+				}, 1, TimeUnit.HOURS);
+		try
+		{
+			flights.get("key");
+			fail("Expected the failure of the loader");
+		}
+		catch (RuntimeException e)
+		{
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertEquals(0, flights.size());
+		assertEquals("value", flights.get("key"));
+		assertEquals(2, loadCount.get());
+	}
+
+	@Test
+	public void testResultsAreForgottenWithoutTimeToLive()
+	{
+		final CountingLoader loader = new CountingLoader();
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(loader);
+		assertEquals("1", flights.get("key"));
+		assertEquals("2", flights.get("key"));
+		assertEquals(0, flights.size());
+	}
+
+	@Test
+	public void testResultsAreKeptUntilTheyExpire() throws InterruptedException
+	{
+		final CountingLoader loader = new CountingLoader();
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(loader, 100,
+				TimeUnit.MILLISECONDS);
+		assertEquals("1", flights.get("key"));
+		assertEquals("1", flights.get("key"));
+		Thread.sleep(150);
+		assertEquals("2", flights.get("key"));
+
+		Thread.sleep(150);
+		assertEquals(1, flights.size());
+		flights.evictExpired();
+		assertEquals(0, flights.size());
+	}
+
+	@Test
+	public void testInvalidate()
+	{
+		final CountingLoader loader = new CountingLoader();
+		final SingleFlightLoader<String, String> flights = new SingleFlightLoader<String, String>(loader, 1,
+				TimeUnit.HOURS);
+		assertEquals("1", flights.get("a"));
+		assertEquals("2", flights.get("b"));
+		flights.invalidate("a");
+		assertEquals("3", flights.get("a"));
+		assertEquals("2", flights.get("b"));
+		flights.invalidateAll();
+		assertEquals(0, flights.size());
+	}
+
+	private List<Future<String>> getConcurrently(final SingleFlightLoader<String, String> flights,
+												 final String key) throws InterruptedException
+	{
+		final List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int i = 0; i < THREAD_COUNT; i++)
+		{
+			futures.add(executorService.submit(new Callable<String>()
+			{
+				@Override
+				public String call() throws Exception
+				{
+					return flights.get(key);
+				}
+			}));
+		}
+		// give the other callers time to join the load that is in flight
+		Thread.sleep(200);
+		return futures;
+	}
+
+	private static final class BlockingLoader implements SingleFlightLoader.Loader<String, String>
+	{
+		private final CountDownLatch proceed = new CountDownLatch(1);
+		private final AtomicInteger loadCount = new AtomicInteger();
+		private final RuntimeException failure;
+
+		private BlockingLoader(final RuntimeException failure)
+		{
+			this.failure = failure;
+		}
+
+		@Override
+		public String load(final String key) throws Exception
+		{
+			loadCount.incrementAndGet();
+			proceed.await();
+			if (failure != null)
+			{
+				throw failure;
+			}
+			return "value of " + key;
+		}
+
+		private void release()
+		{
+			proceed.countDown();
+		}
+	}
+
+	private static final class CountingLoader implements SingleFlightLoader.Loader<String, String>
+	{
+		private final AtomicInteger loadCount = new AtomicInteger();
+
+		@Override
+		public String load(final String key)
+		{
+			return Integer.toString(loadCount.incrementAndGet());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import org.junit.*;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class DateUtilsTest
+{
+	/** 0001-01-01 to 9999-12-31, the range of four-digit years. */
+	private static final long MIN_MILLIS = -62135596800000L;
+	private static final long MAX_MILLIS = 253402300799999L;
+
+	@Test
+	public void testFormatMatchesSimpleDateFormat() throws IOException
+	{
+		final DateFormat format = DateUtils.getDateTimeUTCFormat();
+		final DateFormat millisecondsFormat = DateUtils.getDateTimeMillisecondsUTCFormat();
+		final Random random = new Random(42);
+		final char[] chars = new char[40];
+		for (int i = 0; i < 20000; i++)
+		{
+			final long millis = randomMillis(random);
+			final Date date = new Date(millis);
+
+			final String expected = format.format(date);
+			final StringBuilder sb = new StringBuilder();
+			DateUtils.formatDateTimeUTC(millis, sb);
+			assertEquals(expected, sb.toString());
+			assertEquals(expected, new String(chars, 1, DateUtils.formatDateTimeUTC(millis, chars, 1) - 1));
+
+			final String expectedWithMillis = millisecondsFormat.format(date);
+			sb.setLength(0);
+			DateUtils.formatDateTimeMillisecondsUTC(millis, sb);
+			assertEquals(expectedWithMillis, sb.toString());
+			assertEquals(expectedWithMillis,
+					new String(chars, 1, DateUtils.formatDateTimeMillisecondsUTC(millis, chars, 1) - 1));
+		}
+	}
+
+	@Test
+	public void testParseMatchesSimpleDateFormat() throws ParseException
+	{
+		final DateFormat format = DateUtils.getDateTimeUTCFormat();
+		final DateFormat millisecondsFormat = DateUtils.getDateTimeMillisecondsUTCFormat();
+		final Random random = new Random(7);
+		for (int i = 0; i < 20000; i++)
+		{
+			final Date date = new Date(randomMillis(random));
+
+			final String s = format.format(date);
+			assertEquals(s, format.parse(s).getTime(), DateUtils.parseDateTimeUTC(s));
+			assertEquals(s, format.parse(s), DateUtils.getDateFromDateTimeUTCFormat(s));
+
+			final String withMillis = millisecondsFormat.format(date);
+			assertEquals(withMillis, date.getTime(), DateUtils.parseDateTimeMillisecondsUTC(withMillis));
+			assertEquals(withMillis, date, DateUtils.getDateFromDateTimeMillisecondsUTCFormat(withMillis));
+		}
+	}
+
+	/** Out-of-range fields, signs, spaces etc. must be handled just like the format handles them. */
+	@Test
+	public void testParseOfUnusualInputMatchesSimpleDateFormat()
+	{
+		final DateFormat format = DateUtils.getDateTimeUTCFormat();
+		final DateFormat millisecondsFormat = DateUtils.getDateTimeMillisecondsUTCFormat();
+		final char[] replacements = "0123456789+- xZ:.T".toCharArray();
+		final Random random = new Random(11);
+		for (int i = 0; i < 20000; i++)
+		{
+			final Date date = new Date(randomMillis(random));
+			final boolean withMillis = random.nextBoolean();
+			final DateFormat reference = withMillis ? millisecondsFormat : format;
+			final char[] chars = reference.format(date).toCharArray();
+			final int mutations = 1 + random.nextInt(2);
+			for (int j = 0; j < mutations; j++)
+			{
+				chars[random.nextInt(chars.length)] = replacements[random.nextInt(replacements.length)];
+			}
+			final String s = new String(chars);
+			Long expected;
+			try
+			{
+				expected = reference.parse(s).getTime();
+			}
+			catch (ParseException e)
+			{
+				expected = null;
+			}
+			Long actual;
+			try
+			{
+				actual = withMillis ? DateUtils.parseDateTimeMillisecondsUTC(s) : DateUtils.parseDateTimeUTC(s);
+			}
+			catch (RuntimeException e)
+			{
+				actual = null;
+			}
+			assertEquals(s, expected, actual);
+		}
+	}
+
+	private static long randomMillis(final Random random)
+	{
+		switch (random.nextInt(3))
+		{
+			case 0:
+				// around the epoch
+				return (long) (random.nextGaussian() * 1000L * 60 * 60 * 24 * 365 * 50);
+			case 1:
+				// the Julian to Gregorian cutover
+				return -12219292800000L + (long) (random.nextGaussian() * 1000L * 60 * 60 * 24 * 365 * 10);
+			default:
+				return MIN_MILLIS + (long) (random.nextDouble() * (MAX_MILLIS - MIN_MILLIS));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class TimeRangeIndexTest
+{
+	@Test
+	public void testEmptyIndex()
+	{
+		final TimeRangeIndex index = new TimeRangeIndex();
+		assertTrue(index.isEmpty());
+		assertTrue(index.including(0).isEmpty());
+		assertFalse(index.includesAny(0));
+		assertTrue(index.coalesce().isEmpty());
+	}
+
+	@Test
+	public void testBoundsAreInclusive()
+	{
+		final TimeRangeIndex index = new TimeRangeIndex(Arrays.asList(new TimeRange(10, 20)));
+		assertFalse(index.includesAny(9));
+		assertTrue(index.includesAny(10));
+		assertTrue(index.includesAny(20));
+		assertFalse(index.includesAny(21));
+		assertEquals(1, index.overlapping(20, 30).size());
+		assertEquals(0, index.overlapping(21, 30).size());
+	}
+
+	@Test
+	public void testQueriesMatchBruteForce()
+	{
+		final Random random = new Random(42);
+		for (int round = 0; round < 200; round++)
+		{
+			final List<TimeRange> ranges = new ArrayList<TimeRange>();
+			final TimeRangeIndex index = new TimeRangeIndex();
+			final int count = random.nextInt(100);
+			for (int i = 0; i < count; i++)
+			{
+				final List<TimeRange> batch = new ArrayList<TimeRange>();
+				final int batchSize = random.nextInt(4) == 0 ? random.nextInt(10) : 1;
+				for (int j = 0; j < batchSize; j++)
+				{
+					batch.add(randomRange(random));
+				}
+				if (batch.size() == 1)
+				{
+					index.add(batch.get(0));
+				}
+				else
+				{
+					index.addAll(batch);
+				}
+				ranges.addAll(batch);
+			}
+			assertEquals(ranges.size(), index.size());
+
+			for (long millis = -1; millis <= 1001; millis += 1 + random.nextInt(20))
+			{
+				final List<TimeRange> expected = new ArrayList<TimeRange>();
+				for (final TimeRange range : ranges)
+				{
+					if (range.includes(millis))
+					{
+						expected.add(range);
+					}
+				}
+				assertSameRanges(expected, index.including(millis));
+				assertEquals(!expected.isEmpty(), index.includesAny(millis));
+			}
+
+			for (int i = 0; i < 50; i++)
+			{
+				final TimeRange query = randomRange(random);
+				final List<TimeRange> expected = new ArrayList<TimeRange>();
+				for (final TimeRange range : ranges)
+				{
+					if (range.overlaps(query))
+					{
+						expected.add(range);
+					}
+				}
+				assertSameRanges(expected, index.overlapping(query));
+			}
+
+			assertEquals(TimeRanges.coalesce(ranges), index.coalesce());
+		}
+	}
+
+	private static TimeRange randomRange(final Random random)
+	{
+		final long start = random.nextInt(1000);
+		final long length = random.nextInt(4) == 0 ? random.nextInt(500) : random.nextInt(20);
+		return new TimeRange(start, start + length);
+	}
+
+	private static void assertSameRanges(final List<TimeRange> expected, final List<TimeRange> actual)
+	{
+		final List<TimeRange> sortedExpected = new ArrayList<TimeRange>(expected);
+		final List<TimeRange> sortedActual = new ArrayList<TimeRange>(actual);
+		Collections.sort(sortedExpected, TimeRangeIndex.START_ORDER);
+		Collections.sort(sortedActual, TimeRangeIndex.START_ORDER);
+		assertEquals(sortedExpected, sortedActual);
+	}
+}
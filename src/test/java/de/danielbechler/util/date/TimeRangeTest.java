@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class TimeRangeTest
+{
+	/** A range of 1330837567089 to 1330923967000, serialized by the original implementation holding two Dates. */
+	private static final String ORIGINAL_FORM =
+			"aced00057372002464652e64616e69656c626563686c65722e7574696c2e646174652e54696d6552616e6765f3e6d77176" +
+			"cf26630200024c0003656e647400104c6a6176612f7574696c2f446174653b4c0005737461727471007e00017870737200" +
+			"0e6a6176612e7574696c2e44617465686a81014b5974190300007870770800000135e1401218787371007e000377080000" +
+			"0135dc19b67178";
+
+	@Test
+	public void testDeserializeOriginalForm() throws Exception
+	{
+		final TimeRange range = (TimeRange) deserialize(fromHex(ORIGINAL_FORM));
+		assertEquals(new TimeRange(1330837567089L, 1330923967000L), range);
+		assertEquals(new Date(1330837567089L), range.getStart());
+	}
+
+	@Test
+	public void testSerializedFormKeepsDateFields() throws Exception
+	{
+		final ObjectStreamClass descriptor = ObjectStreamClass.lookup(TimeRange.class);
+		assertEquals(-871772595525048733L, descriptor.getSerialVersionUID());
+		final ObjectStreamField[] fields = descriptor.getFields();
+		assertEquals(2, fields.length);
+		assertEquals("end", fields[0].getName());
+		assertSame(Date.class, fields[0].getType());
+		assertEquals("start", fields[1].getName());
+		assertSame(Date.class, fields[1].getType());
+
+		final TimeRange range = new TimeRange(1330837567089L, 1330923967000L);
+		assertEquals(range, deserialize(serialize(range)));
+	}
+
+	@Test
+	public void testFromMillis()
+	{
+		assertEquals(new TimeRange(5, 5), TimeRange.from(new long[]{5}));
+		assertEquals(new TimeRange(-3, 7), TimeRange.from(new long[]{2, 7, -3, 0}));
+		assertEquals(new TimeRange(-3, 7), TimeRange.from(new long[]{2, 7, -3, 0}, 4));
+	}
+
+	@Test
+	public void testFromMillisInParallelMatchesSequential()
+	{
+		final Random random = new Random(42);
+		final long[] millis = new long[300001];
+		for (int i = 0; i < millis.length; i++)
+		{
+			millis[i] = 1000000000000L + random.nextInt(1000000000);
+		}
+		millis[123457] = 1L;
+		millis[millis.length - 1] = 2000000000000L;
+
+		final TimeRange expected = new TimeRange(1L, 2000000000000L);
+		assertEquals(expected, TimeRange.from(millis));
+		for (final int parallelism : new int[]{1, 2, 3, 4, 16})
+		{
+			assertEquals(expected, TimeRange.from(millis, parallelism));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromEmptyMillis()
+	{
+		TimeRange.from(new long[0], 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromMillisWithoutParallelism()
+	{
+		TimeRange.from(new long[]{1}, 0);
+	}
+
+	private static byte[] serialize(final Object object) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(final byte[] bytes) throws IOException, ClassNotFoundException
+	{
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try
+		{
+			return in.readObject();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private static byte[] fromHex(final String hex)
+	{
+		final byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
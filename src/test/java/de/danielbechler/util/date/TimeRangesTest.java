@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class TimeRangesTest
+{
+	private static final int DOMAIN = 60;
+
+	@Test
+	public void testCoalesceMergesTouchingRanges()
+	{
+		final List<TimeRange> ranges = Arrays.asList(new TimeRange(5, 9), new TimeRange(1, 5), new TimeRange(11, 12));
+		assertEquals(Arrays.asList(new TimeRange(1, 9), new TimeRange(11, 12)), TimeRanges.coalesce(ranges));
+	}
+
+	@Test
+	public void testSetOperationsMatchBruteForce()
+	{
+		final Random random = new Random(42);
+		for (int round = 0; round < 5000; round++)
+		{
+			final List<TimeRange> a = randomRanges(random);
+			final List<TimeRange> b = randomRanges(random);
+			final boolean[] inA = coverage(a);
+			final boolean[] inB = coverage(b);
+			final boolean[] inEither = new boolean[inA.length];
+			final boolean[] inBoth = new boolean[inA.length];
+			for (int i = 0; i < inA.length; i++)
+			{
+				inEither[i] = inA[i] || inB[i];
+				inBoth[i] = inA[i] && inB[i];
+			}
+
+			assertDisjointCoverage(inA, TimeRanges.coalesce(a));
+			assertDisjointCoverage(inEither, TimeRanges.union(a, b));
+			assertDisjointCoverage(inBoth, TimeRanges.intersection(a, b));
+		}
+	}
+
+	private static List<TimeRange> randomRanges(final Random random)
+	{
+		final List<TimeRange> ranges = new ArrayList<TimeRange>();
+		final int count = random.nextInt(8);
+		for (int i = 0; i < count; i++)
+		{
+			final int start = random.nextInt(DOMAIN);
+			ranges.add(new TimeRange(start, start + random.nextInt(Math.min(10, DOMAIN - start))));
+		}
+		return ranges;
+	}
+
+	private static boolean[] coverage(final Collection<TimeRange> ranges)
+	{
+		final boolean[] covered = new boolean[DOMAIN];
+		for (final TimeRange range : ranges)
+		{
+			for (long millis = range.getStartMillis(); millis <= range.getEndMillis(); millis++)
+			{
+				covered[(int) millis] = true;
+			}
+		}
+		return covered;
+	}
+
+	/** The result must be sorted and disjoint and cover exactly the expected instants. */
+	private static void assertDisjointCoverage(final boolean[] expected, final List<TimeRange> actual)
+	{
+		for (int i = 1; i < actual.size(); i++)
+		{
+			assertTrue(actual.toString(), actual.get(i - 1).getEndMillis() < actual.get(i).getStartMillis());
+		}
+		assertEquals(actual.toString(), Arrays.toString(expected), Arrays.toString(coverage(actual)));
+	}
+}
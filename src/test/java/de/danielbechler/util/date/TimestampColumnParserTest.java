@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.date;
+
+import org.junit.*;
+
+import java.nio.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class TimestampColumnParserTest
+{
+	@Test
+	public void testParseValidAndInvalidRows()
+	{
+		final List<String> rows = Arrays.asList(
+				"2012-03-04T05:06:07.089Z",
+				"2012-03-04T23:59:59Z",
+				"2012-03-05T00:00:00.000Z",
+				"1583-01-01T00:00:00Z",
+				"9999-12-31T23:59:59.999Z",
+				"2012-03-04T05:06:07.089",
+				"2012-13-04T05:06:07Z",
+				"2012-02-30T05:06:07Z",
+				"2012-03-04T24:00:00Z",
+				"2012-03-04 05:06:07Z",
+				"",
+				null);
+
+		final TimestampColumnParser.Result result = TimestampColumnParser.create().parse(rows);
+		assertEquals(rows.size(), result.size());
+		for (int row = 0; row < 5; row++)
+		{
+			assertTrue(rows.get(row), result.isValid(row));
+			assertEquals(rows.get(row), expectedMillis(rows.get(row)), result.get(row));
+		}
+		for (int row = 5; row < rows.size(); row++)
+		{
+			assertFalse(rows.get(row), result.isValid(row));
+			assertEquals(0, result.get(row));
+		}
+		assertEquals(7, result.getErrorCount());
+		assertEquals(5, result.nextInvalidRow(0));
+		assertEquals(11, result.nextInvalidRow(11));
+		assertEquals(-1, result.nextInvalidRow(12));
+	}
+
+	@Test
+	public void testErrorBitmapAcrossWordBoundaries()
+	{
+		final int[] invalidRows = {0, 62, 63, 64, 127, 128, 191, 199};
+		final String[] rows = new String[200];
+		final Random random = new Random(42);
+		for (int row = 0; row < rows.length; row++)
+		{
+			rows[row] = format(randomMillis(random));
+		}
+		for (final int row : invalidRows)
+		{
+			rows[row] = "invalid";
+		}
+
+		final TimestampColumnParser.Result result = TimestampColumnParser.create().parse(rows);
+		assertEquals(invalidRows.length, result.getErrorCount());
+		int next = -1;
+		for (final int invalidRow : invalidRows)
+		{
+			next = result.nextInvalidRow(next + 1);
+			assertEquals(invalidRow, next);
+		}
+		assertEquals(-1, result.nextInvalidRow(next + 1));
+		assertEquals(64, result.nextInvalidRow(64));
+		assertEquals(127, result.nextInvalidRow(65));
+		for (int row = 0; row < rows.length; row++)
+		{
+			assertEquals(Arrays.binarySearch(invalidRows, row) < 0, result.isValid(row));
+		}
+	}
+
+	@Test
+	public void testParallelParsingMatchesSequential()
+	{
+		final Random random = new Random(42);
+		final String[] rows = new String[50000];
+		long millis = randomMillis(random);
+		for (int row = 0; row < rows.length; row++)
+		{
+			// mostly runs of the same day, like in real logs
+			millis += random.nextInt(10) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(1000);
+			rows[row] = random.nextInt(100) == 0 ? "broken" : format(millis);
+		}
+
+		final TimestampColumnParser.Result sequential = TimestampColumnParser.create().parse(rows);
+		final TimestampColumnParser.Result parallel = TimestampColumnParser.create().withParallelism(4).parse(rows);
+		assertTrue(sequential.getErrorCount() > 0);
+		assertArrayEquals(sequential.getValues(), parallel.getValues());
+		assertEquals(sequential.getErrorCount(), parallel.getErrorCount());
+		for (int row = 0; row < rows.length; row++)
+		{
+			assertEquals(sequential.isValid(row), parallel.isValid(row));
+			if (sequential.isValid(row))
+			{
+				assertEquals(expectedMillis(rows[row]), sequential.get(row));
+			}
+		}
+	}
+
+	@Test
+	public void testParseDelimitedBuffers()
+	{
+		final String text = "2012-03-04T05:06:07.089Z\n2012-03-04T05:06:08Z\ninvalid\n";
+		assertDelimitedResult(TimestampColumnParser.create().parse(CharBuffer.wrap(text), '\n'));
+		assertDelimitedResult(TimestampColumnParser.create().parse(ByteBuffer.wrap(text.getBytes()), (byte) '\n'));
+		assertDelimitedResult(TimestampColumnParser.create().parse(CharBuffer.wrap(text.trim()), '\n'));
+	}
+
+	@Test
+	public void testParseCrlfDelimitedBuffers()
+	{
+		final String text = "2012-03-04T05:06:07.089Z\r\n2012-03-04T05:06:08Z\r\ninvalid\r\n";
+		assertDelimitedResult(TimestampColumnParser.create().parse(CharBuffer.wrap(text), '\n'));
+		assertDelimitedResult(TimestampColumnParser.create().parse(ByteBuffer.wrap(text.getBytes()), (byte) '\n'));
+	}
+
+	private static void assertDelimitedResult(final TimestampColumnParser.Result result)
+	{
+		assertEquals(3, result.size());
+		assertEquals(expectedMillis("2012-03-04T05:06:07.089Z"), result.get(0));
+		assertEquals(expectedMillis("2012-03-04T05:06:08Z"), result.get(1));
+		assertFalse(result.isValid(2));
+		assertEquals(1, result.getErrorCount());
+	}
+
+	private static long expectedMillis(final String value)
+	{
+		if (value.length() == 24)
+		{
+			return DateUtils.parseDateTimeMillisecondsUTC(value);
+		}
+		return DateUtils.parseDateTimeUTC(value);
+	}
+
+	private static long randomMillis(final Random random)
+	{
+		// somewhere between 1970 and 2100
+		return (long) (random.nextDouble() * 4102444800000L);
+	}
+
+	private static String format(final long millis)
+	{
+		final char[] chars = new char[24];
+		return new String(chars, 0, DateUtils.formatDateTimeMillisecondsUTC(millis, chars, 0));
+	}
+}
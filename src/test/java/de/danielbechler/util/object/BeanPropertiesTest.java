@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class BeanPropertiesTest
+{
+	@Test
+	public void testAccessorsOfBean()
+	{
+		final Bean bean = new Bean();
+		final PropertyAccessor name = BeanProperties.accessorFor(Bean.class, "name");
+		assertSame(String.class, name.getType());
+		name.set(bean, "foo");
+		assertEquals("foo", name.get(bean));
+
+		final PropertyAccessor active = BeanProperties.accessorFor(Bean.class, "active");
+		active.set(bean, true);
+		assertEquals(Boolean.TRUE, active.get(bean));
+		active.set(bean, null);
+		assertEquals(Boolean.TRUE, active.get(bean));
+
+		assertFalse(BeanProperties.accessorFor(Bean.class, "readOnly").isWritable());
+		assertNull(BeanProperties.accessorFor(Bean.class, "class"));
+	}
+
+	@Test
+	public void testAccessorForColumn()
+	{
+		assertSame(BeanProperties.accessorFor(Bean.class, "readOnly"),
+				BeanProperties.accessorForColumn(Bean.class, "read_only"));
+	}
+
+	@Test
+	public void testAccessorsOfNonPublicJdkClasses()
+	{
+		final List<String> list = Collections.unmodifiableList(new ArrayList<String>());
+		final PropertyAccessor listEmpty = BeanProperties.accessorsOf(list.getClass()).get("empty");
+		assertEquals(Boolean.TRUE, listEmpty.get(list));
+
+		final Map<String, String> map = Collections.emptyMap();
+		final PropertyAccessor mapEmpty = BeanProperties.accessorsOf(map.getClass()).get("empty");
+		assertEquals(Boolean.TRUE, mapEmpty.get(map));
+	}
+
+	@Test
+	public void testIsGetterWinsOverGetGetter()
+	{
+		final PropertyAccessor enabled = BeanProperties.accessorFor(TwoGetters.class, "enabled");
+		assertSame(boolean.class, enabled.getType());
+		assertEquals(Boolean.TRUE, enabled.get(new TwoGetters()));
+	}
+
+	public static class Bean
+	{
+		private String name;
+		private boolean active;
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setName(final String name)
+		{
+			this.name = name;
+		}
+
+		public boolean isActive()
+		{
+			return active;
+		}
+
+		public void setActive(final boolean active)
+		{
+			this.active = active;
+		}
+
+		public int getReadOnly()
+		{
+			return 42;
+		}
+	}
+
+	public static class TwoGetters
+	{
+		public boolean getEnabled()
+		{
+			return false;
+		}
+
+		public boolean isEnabled()
+		{
+			return true;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import de.danielbechler.util.io.*;
+import org.junit.*;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class ClassCacheTest
+{
+	@Test
+	public void testValuesAreComputedOncePerClass()
+	{
+		for (final boolean softValues : new boolean[]{false, true})
+		{
+			final CountingCache cache = new CountingCache(softValues);
+			final Object bootstrapValue = cache.get(String.class);
+			final Object applicationValue = cache.get(ClassCacheTest.class);
+			assertSame(bootstrapValue, cache.get(String.class));
+			assertSame(applicationValue, cache.get(ClassCacheTest.class));
+			assertEquals("java.lang.String", bootstrapValue.toString());
+			assertEquals(ClassCacheTest.class.getName(), applicationValue.toString());
+			assertEquals(2, cache.computeCount.get());
+		}
+	}
+
+	@Test
+	public void testCachedClassesCanBeUnloaded() throws Exception
+	{
+		final CountingCache cache = new CountingCache(false);
+		final WeakReference<Class<?>> reference = loadIsolatedAndCache(cache);
+		for (int i = 0; i < 50 && reference.get() != null; i++)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull("The cache kept the class from being unloaded", reference.get());
+		// triggers the removal of the stale entry
+		assertEquals(ClassCacheTest.class.getName(), cache.get(ClassCacheTest.class).toString());
+	}
+
+	/** Loads a class through a class loader that nothing else references and puts it into the given cache. */
+	private static WeakReference<Class<?>> loadIsolatedAndCache(final CountingCache cache) throws IOException
+	{
+		final String resourceName = Unloadable.class.getName().replace('.', '/') + ".class";
+		final InputStream is = ClassCacheTest.class.getClassLoader().getResourceAsStream(resourceName);
+		final byte[] bytes;
+		try
+		{
+			bytes = FileUtils.inputStreamToByteArray(is, 1024);
+		}
+		finally
+		{
+			is.close();
+		}
+		final Class<?> type = new IsolatingClassLoader().define(bytes);
+		assertNotSame(Unloadable.class, type);
+		assertEquals(Unloadable.class.getName(), cache.get(type).toString());
+		assertEquals(Unloadable.class.getName(), cache.get(type).toString());
+		assertEquals(1, cache.computeCount.get());
+		return new WeakReference<Class<?>>(type);
+	}
+
+	private static final class CountingCache extends ClassCache<Object>
+	{
+		private final AtomicInteger computeCount = new AtomicInteger();
+
+		private CountingCache(final boolean softValues)
+		{
+			super(softValues);
+		}
+
+		@Override
+		protected Object compute(final Class<?> type)
+		{
+			computeCount.incrementAndGet();
+			// a new instance per computation, so tests can tell cached values from recomputed ones
+			return new StringBuilder(type.getName());
+		}
+	}
+
+	private static final class IsolatingClassLoader extends ClassLoader
+	{
+		private IsolatingClassLoader()
+		{
+			super(null);
+		}
+
+		private Class<?> define(final byte[] bytes)
+		{
+			return defineClass(null, bytes, 0, bytes.length);
+		}
+	}
+
+	public static final class Unloadable
+	{
+	}
+}
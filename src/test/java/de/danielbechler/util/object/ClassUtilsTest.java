@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import org.junit.*;
+
+import java.lang.reflect.*;
+import java.math.*;
+import java.net.*;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class ClassUtilsTest
+{
+	@Test
+	public void testGetTypeCategory()
+	{
+		assertCategory(TypeCategory.PRIMITIVE, int.class, boolean.class, char.class, double.class, void.class);
+		assertCategory(TypeCategory.BOXED, Integer.class, Boolean.class, Character.class, Double.class, Long.class);
+		assertCategory(TypeCategory.ENUM, TimeUnit.class, Thread.State.class);
+		assertCategory(TypeCategory.TEXT, String.class, StringBuilder.class, CharSequence.class);
+		assertCategory(TypeCategory.TEMPORAL, Date.class, Timestamp.class);
+		assertCategory(TypeCategory.VALUE, BigDecimal.class, BigInteger.class, AtomicLong.class, Number.class,
+				URI.class, URL.class, Locale.class, Class.class);
+		assertCategory(TypeCategory.CONTAINER, int[].class, Object[][].class, List.class, ArrayList.class,
+				HashMap.class, ConcurrentSkipListMap.class);
+		assertCategory(TypeCategory.BEAN, Object.class, Thread.class, ClassUtilsTest.class, Runnable.class);
+	}
+
+	@Test
+	public void testIsSimpleTypeMatchesCategory()
+	{
+		for (final Class<?> type : Arrays.<Class<?>>asList(int.class, Integer.class, TimeUnit.class, String.class,
+				Date.class, BigDecimal.class, URI.class, Class.class))
+		{
+			assertTrue(type.getName(), ClassUtils.isSimpleType(type));
+		}
+		for (final Class<?> type : Arrays.<Class<?>>asList(int[].class, List.class, HashMap.class, Object.class,
+				Thread.class))
+		{
+			assertFalse(type.getName(), ClassUtils.isSimpleType(type));
+		}
+	}
+
+	@Test
+	public void testFreshInstanceOf()
+	{
+		final Bean first = ClassUtils.freshInstanceOf(Bean.class);
+		final Bean second = ClassUtils.freshInstanceOf(Bean.class);
+		assertNotNull(first);
+		assertNotNull(second);
+		assertNotSame(first, second);
+		assertEquals(new ArrayList<Object>(), ClassUtils.freshInstanceOf(ArrayList.class));
+	}
+
+	@Test
+	public void testFreshInstanceOfTypeWithoutPublicDefaultConstructor()
+	{
+		assertNull(ClassUtils.freshInstanceOf(NoDefaultConstructor.class));
+		assertNull(ClassUtils.freshInstanceOf(Integer.class));
+		assertNull(ClassUtils.freshInstanceOf(Runnable.class));
+	}
+
+	@Test
+	public void testInstantiatorOfIsCached()
+	{
+		assertSame(ClassUtils.instantiatorOf(Bean.class), ClassUtils.instantiatorOf(Bean.class));
+		assertSame(ClassUtils.instantiatorOf(ArrayList.class), ClassUtils.instantiatorOf(ArrayList.class));
+		assertSame(ClassUtils.instantiatorOf(NoDefaultConstructor.class),
+				ClassUtils.instantiatorOf(NoDefaultConstructor.class));
+	}
+
+	@Test
+	public void testFreshInstanceOfWrapsConstructorFailures()
+	{
+		try
+		{
+			ClassUtils.freshInstanceOf(FailingConstructor.class);
+			fail("Expected the failure of the constructor to be reported");
+		}
+		catch (RuntimeException e)
+		{
+			assertTrue(e.getCause() instanceof InvocationTargetException);
+			assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	private static void assertCategory(final TypeCategory expected, final Class<?>... types)
+	{
+		for (final Class<?> type : types)
+		{
+			assertEquals(type.getName(), expected, ClassUtils.getTypeCategory(type));
+			assertEquals(type.getName(), expected.isSimple(), ClassUtils.isSimpleType(type));
+		}
+	}
+
+	public static class Bean
+	{
+	}
+
+	public static class NoDefaultConstructor
+	{
+		public NoDefaultConstructor(final String value)
+		{
+		}
+	}
+
+	public static class FailingConstructor
+	{
+		public FailingConstructor()
+		{
+			throw new IllegalStateException();
+		}
+	}
+}
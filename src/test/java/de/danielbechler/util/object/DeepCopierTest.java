@@ -0,0 +1,326 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import org.junit.*;
+
+import java.math.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class DeepCopierTest
+{
+	@Test
+	public void testCopyBean()
+	{
+		final Node node = new Node();
+		node.name = new StringBuilder("root");
+		node.created = new Date(1000L);
+		node.numbers = new int[]{1, 2, 3};
+		node.children = new ArrayList<Node>();
+		final Node child = new Node();
+		child.parent = node;
+		node.children.add(child);
+		node.children.add(child);
+
+		final Node copy = DeepCopier.copy(node);
+		assertNotSame(node, copy);
+		assertNotSame(node.name, copy.name);
+		assertEquals("root", copy.name.toString());
+		assertNotSame(node.created, copy.created);
+		assertEquals(node.created, copy.created);
+		assertNotSame(node.numbers, copy.numbers);
+		assertArrayEquals(node.numbers, copy.numbers);
+		assertEquals(2, copy.children.size());
+		assertNotSame(child, copy.children.get(0));
+		assertSame(copy.children.get(0), copy.children.get(1));
+		assertSame(copy, copy.children.get(0).parent);
+	}
+
+	@Test
+	public void testCopySharesImmutableJdkTypes()
+	{
+		final Values values = new Values();
+		values.id = UUID.randomUUID();
+		values.currency = Currency.getInstance("EUR");
+		values.color = Color.RED;
+		values.plainColor = Color.GREEN;
+		values.empty = Collections.emptyList();
+
+		final Values copy = DeepCopier.copy(values);
+		assertSame(values.id, copy.id);
+		assertSame(values.currency, copy.currency);
+		assertSame(Color.RED, copy.color);
+		assertSame(Color.GREEN, copy.plainColor);
+		assertTrue(copy.empty.isEmpty());
+	}
+
+	@Test
+	public void testCopyEnumSetsAndMaps()
+	{
+		final Values values = new Values();
+		values.colors = EnumSet.of(Color.RED, Color.BLUE);
+		values.namesByColor = new EnumMap<Color, List<String>>(Color.class);
+		values.namesByColor.put(Color.RED, new ArrayList<String>(Arrays.asList("a", "b")));
+
+		final Values copy = DeepCopier.copy(values);
+		assertNotSame(values.colors, copy.colors);
+		assertEquals(values.colors, copy.colors);
+		assertTrue(copy.colors.getClass().getName(), copy.colors instanceof EnumSet);
+		assertNotSame(values.namesByColor, copy.namesByColor);
+		assertSame(EnumMap.class, copy.namesByColor.getClass());
+		assertEquals(values.namesByColor, copy.namesByColor);
+		assertNotSame(values.namesByColor.get(Color.RED), copy.namesByColor.get(Color.RED));
+	}
+
+	@Test
+	public void testCopyUnmodifiableJdkCollections()
+	{
+		final Map<String, List<String>> map = Collections.unmodifiableMap(
+				Collections.singletonMap("a", Collections.unmodifiableList(Arrays.asList("b"))));
+		final Map<String, List<String>> copy = DeepCopier.copy(map);
+		assertEquals(map, copy);
+		assertNotSame(map.get("a"), copy.get("a"));
+	}
+
+	@Test
+	public void testCopySharesOnlyImmutableNumbersAndText()
+	{
+		final Numbers numbers = new Numbers();
+		numbers.text = "foo";
+		numbers.decimal = new BigDecimal("1.5");
+		numbers.boxed = 42;
+		numbers.counter = new AtomicInteger(7);
+		numbers.total = new AtomicLong(8);
+		numbers.mutable = new MutableNumber();
+		numbers.mutable.value = 9;
+
+		final Numbers copy = DeepCopier.copy(numbers);
+		assertSame(numbers.text, copy.text);
+		assertSame(numbers.decimal, copy.decimal);
+		assertSame(numbers.boxed, copy.boxed);
+		assertNotSame(numbers.counter, copy.counter);
+		assertEquals(7, copy.counter.get());
+		assertNotSame(numbers.total, copy.total);
+		assertEquals(8, copy.total.get());
+		assertNotSame(numbers.mutable, copy.mutable);
+		assertEquals(9, copy.mutable.value);
+	}
+
+	@Test
+	public void testCopyDoesNotShareCharBuffers()
+	{
+		final CharBuffer buffer = CharBuffer.wrap(new char[]{'a', 'b'});
+		try
+		{
+			assertNotSame(buffer, DeepCopier.copy(buffer));
+		}
+		catch (IllegalArgumentException e)
+		{
+			// the buffer implementations have neither a default constructor nor fields accessible on every JVM
+			assertTrue(e.getMessage(), e.getMessage().contains(buffer.getClass().getName()));
+		}
+	}
+
+	@Test
+	public void testCopySortedCollectionsKeepTheirTypeAndComparator()
+	{
+		final Sorted sorted = new Sorted();
+		sorted.map = new ConcurrentSkipListMap<String, List<String>>(Collections.reverseOrder());
+		sorted.map.put("a", new ArrayList<String>(Arrays.asList("x")));
+		sorted.map.put("b", new ArrayList<String>());
+		sorted.set = new ConcurrentSkipListSet<String>(Collections.reverseOrder());
+		sorted.set.addAll(Arrays.asList("a", "b"));
+		sorted.tree = new TreeSet<String>(Arrays.asList("a", "b"));
+		sorted.cloneable = new CloneableSortedSet(true);
+		sorted.cloneable.addAll(Arrays.asList("a", "b"));
+
+		final Sorted copy = DeepCopier.copy(sorted);
+		assertNotSame(sorted.map, copy.map);
+		assertSame(sorted.map.comparator(), copy.map.comparator());
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(copy.map.keySet()));
+		assertNotSame(sorted.map.get("a"), copy.map.get("a"));
+		assertEquals(sorted.map, copy.map);
+		assertSame(sorted.set.comparator(), copy.set.comparator());
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(copy.set));
+		assertNotSame(sorted.tree, copy.tree);
+		assertEquals(sorted.tree, copy.tree);
+		assertNotSame(sorted.cloneable, copy.cloneable);
+		assertSame(CloneableSortedSet.class, copy.cloneable.getClass());
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(copy.cloneable));
+	}
+
+	@Test
+	public void testCopyRejectsSortedCollectionsWithoutComparatorConstructorOrClone()
+	{
+		final SortedSet<String> set = Collections.unmodifiableSortedSet(new TreeSet<String>(Arrays.asList("a")));
+		try
+		{
+			DeepCopier.copy(set);
+			fail("Expected " + set.getClass().getName() + " to be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(set.getClass().getName()));
+		}
+	}
+
+	@Test
+	public void testCopyReportsInaccessibleTypes()
+	{
+		// older JVMs allow access to the fields of JDK classes, so only the module system makes this fail
+		Assume.assumeTrue(hasModuleSystem());
+		try
+		{
+			DeepCopier.copy(new ReentrantLock());
+			fail("Expected " + ReentrantLock.class.getName() + " to be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(ReentrantLock.class.getName()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCopyWithoutDefaultConstructor()
+	{
+		DeepCopier.copy(new NoDefaultConstructor("foo"));
+	}
+
+	private static boolean hasModuleSystem()
+	{
+		try
+		{
+			Class.forName("java.lang.Module");
+			return true;
+		}
+		catch (ClassNotFoundException e)
+		{
+			return false;
+		}
+	}
+
+	private static class Node
+	{
+		private StringBuilder name;
+		private Date created;
+		private int[] numbers;
+		private List<Node> children;
+		private Node parent;
+	}
+
+	private static class Values
+	{
+		private UUID id;
+		private Currency currency;
+		private Color color;
+		private Color plainColor;
+		private List<String> empty;
+		private Set<Color> colors;
+		private Map<Color, List<String>> namesByColor;
+	}
+
+	private static class Numbers
+	{
+		private String text;
+		private BigDecimal decimal;
+		private Integer boxed;
+		private AtomicInteger counter;
+		private AtomicLong total;
+		private MutableNumber mutable;
+	}
+
+	private static class MutableNumber extends Number
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int value;
+
+		@Override
+		public int intValue()
+		{
+			return value;
+		}
+
+		@Override
+		public long longValue()
+		{
+			return value;
+		}
+
+		@Override
+		public float floatValue()
+		{
+			return value;
+		}
+
+		@Override
+		public double doubleValue()
+		{
+			return value;
+		}
+	}
+
+	private static class Sorted
+	{
+		private ConcurrentSkipListMap<String, List<String>> map;
+		private ConcurrentSkipListSet<String> set;
+		private TreeSet<String> tree;
+		private CloneableSortedSet cloneable;
+	}
+
+	/** Has no constructor taking a comparator, so it can only be copied via its public clone method. */
+	private static class CloneableSortedSet extends TreeSet<String>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private CloneableSortedSet(final boolean descending)
+		{
+			super(descending ? Collections.<String>reverseOrder() : null);
+		}
+	}
+
+	private enum Color
+	{
+		RED
+				{
+					@Override
+					public String toString()
+					{
+						return "red";
+					}
+				},
+		GREEN,
+		BLUE
+	}
+
+	private static class NoDefaultConstructor
+	{
+		private final String value;
+
+		private NoDefaultConstructor(final String value)
+		{
+			this.value = value;
+		}
+	}
+}
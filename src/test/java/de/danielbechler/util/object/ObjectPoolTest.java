@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class ObjectPoolTest
+{
+	@Test
+	public void testReleasedObjectsAreReused()
+	{
+		final ObjectPool<StringBuilder> pool = new ObjectPool<StringBuilder>(new StringBuilderFactory(), 2);
+		final StringBuilder sb = pool.borrow();
+		sb.append("foo");
+		pool.release(sb);
+		assertEquals(1, pool.getIdleCount());
+
+		final StringBuilder again = pool.borrow();
+		assertSame(sb, again);
+		assertEquals(0, again.length());
+		assertEquals(1, pool.getCreateCount());
+	}
+
+	@Test
+	public void testObjectsBeyondCapacityAreDestroyed()
+	{
+		final ObjectPool<StringBuilder> pool = new ObjectPool<StringBuilder>(new StringBuilderFactory(), 2);
+		final List<StringBuilder> borrowed = new ArrayList<StringBuilder>();
+		for (int i = 0; i < 3; i++)
+		{
+			borrowed.add(pool.borrow());
+		}
+		for (final StringBuilder sb : borrowed)
+		{
+			pool.release(sb);
+		}
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(1, pool.getDestroyCount());
+	}
+
+	@Test
+	public void testInvalidObjectsAreDestroyedOnBorrow()
+	{
+		final ObjectPool<StringBuilder> pool = new ObjectPool<StringBuilder>(new StringBuilderFactory()
+		{
+			@Override
+			public boolean validate(final StringBuilder object)
+			{
+				return false;
+			}
+		}, 2);
+		final StringBuilder sb = pool.borrow();
+		pool.release(sb);
+		assertNotSame(sb, pool.borrow());
+		assertEquals(1, pool.getDestroyCount());
+	}
+
+	@Test
+	public void testDoubleReleaseWithLeakDetectionDoesNotPoolTwice()
+	{
+		final ObjectPool<StringBuilder> pool = new ObjectPool<StringBuilder>(new StringBuilderFactory(), 4, true);
+		final StringBuilder sb = pool.borrow();
+		pool.release(sb);
+		pool.release(sb);
+		assertEquals(1, pool.getIdleCount());
+
+		final StringBuilder first = pool.borrow();
+		final StringBuilder second = pool.borrow();
+		assertSame(sb, first);
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void testReleaseOfForeignObjectWithLeakDetectionIsIgnored()
+	{
+		final ObjectPool<StringBuilder> pool = new ObjectPool<StringBuilder>(new StringBuilderFactory(), 4, true);
+		pool.release(new StringBuilder());
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(0, pool.getDestroyCount());
+	}
+
+	private static class StringBuilderFactory extends ObjectPool.Factory<StringBuilder>
+	{
+		@Override
+		public StringBuilder create()
+		{
+			return new StringBuilder();
+		}
+
+		@Override
+		public void reset(final StringBuilder object)
+		{
+			object.setLength(0);
+		}
+	}
+}
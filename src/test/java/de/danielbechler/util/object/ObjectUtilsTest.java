@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.object;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class ObjectUtilsTest
+{
+	@Test
+	public void testIsEqual()
+	{
+		assertTrue(ObjectUtils.isEqual(null, null));
+		assertTrue(ObjectUtils.isEqual("a", new String("a")));
+		assertFalse(ObjectUtils.isEqual("a", null));
+		assertFalse(ObjectUtils.isEqual(null, "a"));
+		assertFalse(ObjectUtils.isEqual(new int[]{1}, new int[]{1}));
+	}
+
+	@Test
+	public void testPrimitiveArrays()
+	{
+		assertDeepEqual(new int[]{1, 2}, new int[]{1, 2});
+		assertDeepEqual(new boolean[]{true}, new boolean[]{true});
+		assertDeepEqual(new double[0], new double[0]);
+		assertNotDeepEqual(new int[]{1, 2}, new int[]{2, 1});
+		assertNotDeepEqual(new int[]{1, 2}, new int[]{1, 2, 3});
+		assertNotDeepEqual(new int[]{1}, new long[]{1});
+		assertNotDeepEqual(new int[]{1}, new Integer[]{1});
+		assertNotDeepEqual(new char[]{'a'}, "a");
+	}
+
+	@Test
+	public void testNestedArrays()
+	{
+		assertDeepEqual(new Object[]{"a", new int[]{1}, new Object[]{new byte[]{2}, null}},
+				new Object[]{"a", new int[]{1}, new Object[]{new byte[]{2}, null}});
+		assertDeepEqual(new String[][]{{"a"}, {"b", "c"}}, new Object[]{new String[]{"a"}, new Object[]{"b", "c"}});
+		assertNotDeepEqual(new Object[]{new int[]{1}}, new Object[]{new int[]{2}});
+		assertNotDeepEqual(new Object[]{"a"}, new Object[]{"a", "b"});
+		assertNotDeepEqual(new Object[]{new Object[]{"a"}}, new Object[]{new Object[]{"a", "b"}});
+		assertNotDeepEqual(new Object[]{"a"}, Arrays.asList("a"));
+	}
+
+	@Test
+	public void testListsAndMaps()
+	{
+		assertDeepEqual(Arrays.asList(new int[]{1}, "a"), new LinkedList<Object>(Arrays.asList(new int[]{1}, "a")));
+		assertNotDeepEqual(Arrays.asList("a"), Arrays.asList("a", "b"));
+		assertNotDeepEqual(Arrays.asList("a", "b"), Arrays.asList("b", "a"));
+
+		final Map<String, Object> a = new HashMap<String, Object>();
+		a.put("a", new int[]{1});
+		a.put("b", null);
+		final Map<String, Object> b = new TreeMap<String, Object>();
+		b.put("a", new int[]{1});
+		b.put("b", null);
+		assertDeepEqual(a, b);
+		b.put("c", null);
+		assertNotDeepEqual(a, b);
+		b.remove("b");
+		assertNotDeepEqual(a, b);
+	}
+
+	@Test
+	public void testSetsAreComparedBySize()
+	{
+		assertNotDeepEqual(new HashSet<String>(Arrays.asList("a")), new HashSet<String>(Arrays.asList("a", "b")));
+		assertDeepEqual(new HashSet<String>(Arrays.asList("a", "b")), new TreeSet<String>(Arrays.asList("b", "a")));
+	}
+
+	@Test
+	public void testCycles()
+	{
+		final List<Object> l1 = new ArrayList<Object>();
+		l1.add(l1);
+		final List<Object> l2 = new ArrayList<Object>();
+		final List<Object> inner = new ArrayList<Object>();
+		inner.add(l2);
+		l2.add(inner);
+		assertDeepEqual(l1, l2);
+
+		final List<Object> other = new ArrayList<Object>();
+		other.add(other);
+		other.add("a");
+		assertNotDeepEqual(l1, other);
+
+		final Object[] array = new Object[2];
+		array[0] = "a";
+		array[1] = array;
+		final Object[] unrolled = {"a", new Object[]{"a", null}};
+		((Object[]) unrolled[1])[1] = unrolled;
+		assertDeepEqual(array, unrolled);
+
+		final Map<String, Object> map = new HashMap<String, Object>();
+		map.put("self", map);
+		final Map<String, Object> otherMap = new HashMap<String, Object>();
+		otherMap.put("self", Collections.singletonMap("self", otherMap));
+		assertDeepEqual(map, otherMap);
+	}
+
+	@Test
+	public void testSharedElementsAreNoCycle()
+	{
+		final List<String> shared = Arrays.asList("a", "b");
+		final List<Object> a = Arrays.<Object>asList(shared, shared);
+		final List<Object> b = Arrays.<Object>asList(Arrays.asList("a", "b"), Arrays.asList("a", "b"));
+		assertDeepEqual(a, b);
+		assertEquals(b.hashCode(), ObjectUtils.deepHashCode(a));
+	}
+
+	private static void assertDeepEqual(final Object a, final Object b)
+	{
+		assertTrue(ObjectUtils.isDeepEqual(a, b));
+		assertTrue(ObjectUtils.isDeepEqual(b, a));
+		assertEquals(ObjectUtils.deepHashCode(a), ObjectUtils.deepHashCode(b));
+	}
+
+	private static void assertNotDeepEqual(final Object a, final Object b)
+	{
+		assertFalse(ObjectUtils.isDeepEqual(a, b));
+		assertFalse(ObjectUtils.isDeepEqual(b, a));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class PropertyNameConverterTest
+{
+	private PropertyNameConverter converter;
+
+	@Before
+	public void setUp()
+	{
+		converter = new PropertyNameConverter();
+	}
+
+	@Test
+	public void testToUnderscoreCaseIsNotAffectedByPreviousConversions()
+	{
+		assertEquals(StringUtils.toPropertyExpression("USER_ID"), converter.toPropertyExpression("USER_ID"));
+		assertEquals(StringUtils.toUnderscoreCase("userId"), converter.toUnderscoreCase("userId"));
+	}
+
+	@Test
+	public void testToPropertyExpressionIsNotAffectedByPreviousConversions()
+	{
+		assertEquals(StringUtils.toUnderscoreCase("URL"), converter.toUnderscoreCase("URL"));
+		assertEquals(StringUtils.toPropertyExpression("u_r_l"), converter.toPropertyExpression("u_r_l"));
+	}
+
+	@Test
+	public void testMatchesStringUtilsWhenCached()
+	{
+		final String[] names = {"USER_ID", "user_id", "userId", "URL", "u_r_l", "a", "", "firstName", "FIRST_NAME"};
+		for (int round = 0; round < 2; round++)
+		{
+			for (final String name : names)
+			{
+				assertEquals(StringUtils.toPropertyExpression(name), converter.toPropertyExpression(name));
+				assertEquals(StringUtils.toUnderscoreCase(name), converter.toUnderscoreCase(name));
+			}
+		}
+	}
+
+	@Test
+	public void testOriginalColumnName()
+	{
+		final String propertyName = converter.toPropertyExpression("USER_ID");
+		assertEquals("USER_ID", converter.getOriginalColumnName(propertyName));
+		assertNull(converter.getOriginalColumnName("unknown"));
+	}
+
+	@Test
+	public void testMatchesStringUtilsAfterEviction()
+	{
+		final PropertyNameConverter small = new PropertyNameConverter(2);
+		for (int i = 0; i < 100; i++)
+		{
+			final String column = "COLUMN_" + (i % 7);
+			assertEquals(StringUtils.toPropertyExpression(column), small.toPropertyExpression(column));
+			final String property = "property" + (i % 5);
+			assertEquals(StringUtils.toUnderscoreCase(property), small.toUnderscoreCase(property));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class RandomSequenceGeneratorTest
+{
+	@Test
+	public void testGenerateUsesDefaultAlphabet()
+	{
+		final String sequence = RandomSequenceGenerator.generate(1000);
+		assertEquals(1000, sequence.length());
+		assertOnlyContains(RandomSequenceGenerator.DEFAULT_ALPHABET, sequence);
+	}
+
+	@Test
+	public void testGenerateWithCustomAlphabetUsesEveryCharacter()
+	{
+		final String alphabet = "abc";
+		final String sequence = RandomSequenceGenerator.generate(3000, alphabet);
+		assertOnlyContains(alphabet, sequence);
+		for (int i = 0; i < alphabet.length(); i++)
+		{
+			assertTrue(sequence.indexOf(alphabet.charAt(i)) >= 0);
+		}
+	}
+
+	@Test
+	public void testGeneratorsWithDifferentAlphabetsKeepTheirOwnAlphabet()
+	{
+		final RandomSequenceGenerator digits = RandomSequenceGenerator.fast("0123456789");
+		final RandomSequenceGenerator letters = RandomSequenceGenerator.secure("xyz");
+		for (int i = 0; i < 100; i++)
+		{
+			assertOnlyContains("0123456789", digits.next(10));
+			assertOnlyContains("xyz", letters.next(10));
+		}
+	}
+
+	@Test
+	public void testSingleCharacterAlphabet()
+	{
+		assertEquals("aaaa", RandomSequenceGenerator.generate(4, "a"));
+		assertEquals("", RandomSequenceGenerator.generate(0, "a"));
+	}
+
+	@Test
+	public void testNextCountAndLength()
+	{
+		final String[] sequences = RandomSequenceGenerator.secure(RandomSequenceGenerator.DEFAULT_ALPHABET)
+				.next(100, 16);
+		assertEquals(100, sequences.length);
+		final Set<String> distinct = new HashSet<String>(Arrays.asList(sequences));
+		assertEquals(100, distinct.size());
+		for (final String sequence : sequences)
+		{
+			assertEquals(16, sequence.length());
+		}
+	}
+
+	@Test
+	public void testConsecutiveCustomAlphabetCallsDontRepeat()
+	{
+		final Set<String> sequences = new HashSet<String>();
+		for (int i = 0; i < 1000; i++)
+		{
+			sequences.add(RandomSequenceGenerator.generate(16, "abcdef"));
+		}
+		assertEquals(1000, sequences.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testFillRejectsInvalidRange()
+	{
+		RandomSequenceGenerator.fast("ab").fill(new char[4], 2, 3);
+	}
+
+	private static void assertOnlyContains(final String alphabet, final String sequence)
+	{
+		for (int i = 0; i < sequence.length(); i++)
+		{
+			assertTrue(sequence, alphabet.indexOf(sequence.charAt(i)) >= 0);
+		}
+	}
+}
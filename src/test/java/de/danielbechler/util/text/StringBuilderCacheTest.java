@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class StringBuilderCacheTest
+{
+	@Before
+	public void setUp()
+	{
+		// start with an empty cache, whatever other tests on this thread left behind
+		StringBuilderCache.acquire(0);
+	}
+
+	@Test
+	public void testReleasedBuilderIsReused()
+	{
+		final StringBuilder sb = StringBuilderCache.acquire(16);
+		sb.append("foo");
+		assertEquals("foo", StringBuilderCache.toStringAndRelease(sb));
+		final StringBuilder again = StringBuilderCache.acquire(32);
+		assertSame(sb, again);
+		assertEquals(0, again.length());
+		assertTrue(again.capacity() >= 32);
+	}
+
+	@Test
+	public void testNestedAcquireReturnsNewBuilder()
+	{
+		final StringBuilder sb = StringBuilderCache.acquire(16);
+		StringBuilderCache.release(sb);
+		final StringBuilder outer = StringBuilderCache.acquire(16);
+		final StringBuilder inner = StringBuilderCache.acquire(16);
+		assertNotSame(outer, inner);
+		outer.append("outer");
+		inner.append("inner");
+		assertEquals("inner", StringBuilderCache.toStringAndRelease(inner));
+		assertEquals("outer", outer.toString());
+	}
+
+	@Test
+	public void testBuildersBeyondMaximumCapacityAreNotCached()
+	{
+		final StringBuilder large = StringBuilderCache.acquire(StringBuilderCache.MAX_CACHED_CAPACITY + 1);
+		StringBuilderCache.release(large);
+		assertNotSame(large, StringBuilderCache.acquire(16));
+
+		final StringBuilder grown = StringBuilderCache.acquire(16);
+		for (int i = 0; i <= StringBuilderCache.MAX_CACHED_CAPACITY; i++)
+		{
+			grown.append('x');
+		}
+		StringBuilderCache.release(grown);
+		assertNotSame(grown, StringBuilderCache.acquire(16));
+	}
+
+	@Test
+	public void testBuilderAtMaximumCapacityIsCached()
+	{
+		final StringBuilder sb = new StringBuilder(StringBuilderCache.MAX_CACHED_CAPACITY);
+		StringBuilderCache.release(sb);
+		assertSame(sb, StringBuilderCache.acquire(16));
+	}
+}
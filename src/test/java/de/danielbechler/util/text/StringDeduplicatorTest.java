@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class StringDeduplicatorTest
+{
+	@Test
+	public void testDeduplicateReturnsCachedInstance()
+	{
+		final StringDeduplicator deduplicator = new StringDeduplicator();
+		final String first = new String("foo");
+		final String second = new String("foo");
+		assertSame(first, deduplicator.deduplicate(first));
+		assertSame(first, deduplicator.deduplicate(second));
+		assertNull(deduplicator.deduplicate(null));
+	}
+
+	@Test
+	public void testCapacityIsRoundedUpToPowerOfTwo()
+	{
+		assertEquals(1, new StringDeduplicator(1).capacity());
+		assertEquals(8, new StringDeduplicator(5).capacity());
+		assertEquals(StringDeduplicator.DEFAULT_CAPACITY, new StringDeduplicator().capacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacityMustBePositive()
+	{
+		new StringDeduplicator(0);
+	}
+
+	@Test
+	public void testCollidingValuesReplaceEachOther()
+	{
+		final StringDeduplicator deduplicator = new StringDeduplicator(1);
+		final String a = new String("a");
+		final String b = new String("b");
+		assertSame(a, deduplicator.deduplicate(a));
+		assertSame(b, deduplicator.deduplicate(b));
+		final String anotherA = new String("a");
+		assertSame(anotherA, deduplicator.deduplicate(anotherA));
+	}
+
+	@Test
+	public void testClear()
+	{
+		final StringDeduplicator deduplicator = new StringDeduplicator();
+		final String first = new String("foo");
+		deduplicator.deduplicate(first);
+		deduplicator.clear();
+		final String second = new String("foo");
+		assertSame(second, deduplicator.deduplicate(second));
+	}
+
+	@Test
+	public void testCapitalize()
+	{
+		assertNull(StringUtils.capitalize(null));
+		assertEquals("", StringUtils.capitalize(""));
+		final String capitalized = "Foo";
+		assertSame(capitalized, StringUtils.capitalize(capitalized));
+		assertEquals("Foo", StringUtils.capitalize("foo"));
+		assertSame(StringUtils.capitalize("foo"), StringUtils.capitalize("foo"));
+		assertNotSame(StringUtils.capitalize("bar", null), StringUtils.capitalize("bar", null));
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.text;
+
+import org.junit.*;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.regex.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class StringUtilsTest
+{
+	@Test
+	public void testHasText()
+	{
+		assertFalse(StringUtils.hasText((CharSequence) null));
+		assertFalse(StringUtils.hasText(""));
+		assertFalse(StringUtils.hasText(" \t\r\n\u0000"));
+		assertTrue(StringUtils.hasText("a"));
+		assertTrue(StringUtils.hasText("  a  "));
+		assertTrue(StringUtils.hasText(new StringBuilder("\t x")));
+	}
+
+	@Test
+	public void testHasTextMatchesTrim()
+	{
+		for (char c = 0; c < 256; c++)
+		{
+			final String s = " " + c + " ";
+			assertEquals(s.trim().length() > 0, StringUtils.hasText(s));
+		}
+	}
+
+	@Test
+	public void testIsEmpty()
+	{
+		assertTrue(StringUtils.isEmpty((CharSequence) null));
+		assertTrue(StringUtils.isEmpty(new StringBuilder("   ")));
+		assertFalse(StringUtils.isEmpty(new StringBuilder(" a ")));
+	}
+
+	@Test
+	public void testHasTextDoesNotAllocate()
+	{
+		final StringBuilder padded = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			padded.append(' ');
+		}
+		padded.append('x');
+		final String paddedString = padded.toString();
+		final long allocated = allocatedBytes(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int i = 0; i < 10000; i++)
+				{
+					assertTrue(StringUtils.hasText(padded));
+					assertTrue(StringUtils.hasText(paddedString));
+				}
+			}
+		});
+		// a single trimmed copy would already take more than this
+		assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	@Test
+	public void testJoin()
+	{
+		assertEquals("a,b", StringUtils.join(",", "a", null, "b"));
+		assertEquals(",a", StringUtils.join(",", "", "a"));
+		assertEquals("a,,b", StringUtils.join(",", Arrays.asList("a", "", "b")));
+		assertEquals(",a", StringUtils.join(",", (Iterable<String>) Arrays.asList("", "a")));
+		assertEquals("", StringUtils.join(",", (Collection<?>) null));
+		assertEquals("anullb", StringUtils.join(null, Arrays.asList("a", "b")));
+		assertEquals("a-b", StringUtils.joinPresized("-", Arrays.asList("a", "b"), 1));
+	}
+
+	@Test
+	public void testJoinWithNumberKeepsVarargsSemantics()
+	{
+		final Iterable<String> elements = new LinkedHashSet<String>(Arrays.asList("a", "b"));
+		assertEquals("[a, b],5", StringUtils.join(",", elements, 5));
+	}
+
+	@Test
+	public void testJoinToAppendable() throws IOException
+	{
+		final StringWriter writer = new StringWriter();
+		assertSame(writer, StringUtils.join(writer, ",", Arrays.asList("", null, "a", new StringBuilder("b"), 1)));
+		assertEquals(",a,b,1", writer.toString());
+	}
+
+	@Test
+	public void testJoinToAppendableWithFormatter() throws IOException
+	{
+		final StringBuilder sb = new StringBuilder("ids: ");
+		StringUtils.join(sb, ", ", Arrays.asList(1, null, 2).iterator(), new ElementFormatter<Integer>()
+		{
+			@Override
+			public void format(final Integer element, final Appendable target) throws IOException
+			{
+				target.append('#').append(Integer.toString(element));
+			}
+		});
+		assertEquals("ids: #1, #2", sb.toString());
+	}
+
+	@Test
+	public void testJoinLargeCollection()
+	{
+		final List<String> elements = Collections.nCopies(100000, "x");
+		final String joined = StringUtils.join(",", elements);
+		assertEquals(199999, joined.length());
+	}
+
+	@Test
+	public void testToSingleLineString()
+	{
+		assertNull(StringUtils.toSingleLineString(null));
+		assertEquals("a \\ b", StringUtils.toSingleLineString("  a \n\t\r\n b \n "));
+		assertEquals("a \t b", StringUtils.toSingleLineString("a \t b"));
+	}
+
+	@Test
+	public void testToSingleLineStringMatchesRegularExpression()
+	{
+		final Pattern lineBreaks = Pattern.compile("\\s*\\n\\s*");
+		final char[] alphabet = {' ', '\t', '\n', '\r', '\f', 0x0B, 0x01, 0x1F, 'a', 'b'};
+		final Random random = new Random(42);
+		for (int i = 0; i < 20000; i++)
+		{
+			final char[] chars = new char[random.nextInt(20)];
+			for (int j = 0; j < chars.length; j++)
+			{
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			final String s = new String(chars);
+			final String expected = lineBreaks.matcher(s.trim()).replaceAll(" \\\\ ");
+			assertEquals(expected, StringUtils.toSingleLineString(s));
+		}
+	}
+
+	@Test
+	public void testStreamingToSingleLineStringTruncates() throws IOException
+	{
+		final Pattern lineBreaks = Pattern.compile("\\s*\\n\\s*");
+		final char[] alphabet = {' ', '\t', '\n', 0x01, 'a', 'b'};
+		final Random random = new Random(7);
+		for (int i = 0; i < 20000; i++)
+		{
+			final char[] chars = new char[random.nextInt(30)];
+			for (int j = 0; j < chars.length; j++)
+			{
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			final String flattened = lineBreaks.matcher(new String(chars).trim()).replaceAll(" \\\\ ");
+			final int maxLength = random.nextInt(20);
+			final StringBuilder target = new StringBuilder();
+			final boolean truncated = StringUtils.toSingleLineString(new CharArrayReader(chars), target, maxLength,
+					"...");
+			if (flattened.length() > maxLength)
+			{
+				assertTrue(truncated);
+				assertEquals(flattened.substring(0, maxLength) + "...", target.toString());
+			}
+			else
+			{
+				assertFalse(truncated);
+				assertEquals(flattened, target.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testStreamingToSingleLineStringDoesNotBufferLongWhitespace() throws IOException
+	{
+		final int whitespaceLength = 20000000;
+		final StringBuilder target = new StringBuilder();
+		final long allocated = allocatedBytes(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				target.setLength(0);
+				try
+				{
+					assertTrue(StringUtils.toSingleLineString(new WhitespaceReader(whitespaceLength), target, 10,
+							"..."));
+				}
+				catch (IOException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		assertEquals("a" + repeat(' ', 9) + "...", target.toString());
+		assertTrue("Allocated " + allocated + " bytes", allocated < 1024 * 1024);
+	}
+
+	private static String repeat(final char c, final int count)
+	{
+		final char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	/** Produces an <code>'a'</code>, followed by the given number of spaces and tabs and another <code>'a'</code>. */
+	private static final class WhitespaceReader extends Reader
+	{
+		private final int length;
+		private int position;
+
+		private WhitespaceReader(final int whitespaceLength)
+		{
+			this.length = whitespaceLength + 2;
+		}
+
+		@Override
+		public int read(final char[] buffer, final int offset, final int count)
+		{
+			if (position == length)
+			{
+				return -1;
+			}
+			final int n = Math.min(count, length - position);
+			for (int i = 0; i < n; i++)
+			{
+				final int index = position + i;
+				buffer[offset + i] = index == 0 || index == length - 1 ? 'a' : (index < 20 ? ' ' : '\t');
+			}
+			position += n;
+			return n;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	/** @return The number of bytes allocated by the current thread while running the given task. */
+	static long allocatedBytes(final Runnable task)
+	{
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+		Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+		final long threadId = Thread.currentThread().getId();
+		task.run(); // warm up
+		final long before = bean.getThreadAllocatedBytes(threadId);
+		task.run();
+		return bean.getThreadAllocatedBytes(threadId) - before;
+	}
+}
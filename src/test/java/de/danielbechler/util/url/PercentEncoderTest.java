@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.url;
+
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class PercentEncoderTest
+{
+	private static final Charset UTF_8 = Charset.forName("utf-8");
+
+	@Test
+	public void testEncodeReturnsSameInstanceIfNothingNeedsEncoding()
+	{
+		final String s = "abc-XYZ_0.9*";
+		assertSame(s, PercentEncoder.encode(s));
+		assertFalse(PercentEncoder.needsEncoding(s));
+		assertTrue(PercentEncoder.needsEncoding("a b"));
+	}
+
+	@Test
+	public void testEncodeMatchesUrlEncoder() throws UnsupportedEncodingException
+	{
+		final Random random = new Random(42);
+		for (int i = 0; i < 20000; i++)
+		{
+			final String s = randomString(random);
+			final String expected = URLEncoder.encode(s, "UTF-8");
+			assertEquals(s, expected, PercentEncoder.encode(s));
+			assertEquals(s, expected, PercentEncoder.encode(s, new StringBuilder()).toString());
+			assertEquals(s, expected.length(), PercentEncoder.encodedLength(s));
+
+			final char[] chars = new char[expected.length() + 2];
+			assertEquals(s, expected.length() + 1, PercentEncoder.encode(s, chars, 1));
+			assertEquals(s, expected, new String(chars, 1, expected.length()));
+
+			final ByteBuffer buffer = ByteBuffer.allocate(expected.length());
+			PercentEncoder.encode(s, buffer);
+			assertEquals(s, expected, new String(buffer.array(), "US-ASCII"));
+		}
+	}
+
+	@Test
+	public void testEncodeWithOtherCharsetsMatchesUrlEncoder() throws UnsupportedEncodingException
+	{
+		final Random random = new Random(7);
+		for (final String charsetName : new String[]{"ISO-8859-1", "UTF-16", "windows-1252"})
+		{
+			final Charset charset = Charset.forName(charsetName);
+			for (int i = 0; i < 5000; i++)
+			{
+				final String s = randomString(random);
+				final String expected = URLEncoder.encode(s, charsetName);
+				assertEquals(s, expected, PercentEncoder.encode(s, charset));
+			}
+		}
+	}
+
+	/** Mostly ASCII, with some Latin-1, BMP characters, surrogate pairs and unpaired surrogates. */
+	private static String randomString(final Random random)
+	{
+		final StringBuilder sb = new StringBuilder();
+		final int length = random.nextInt(12);
+		for (int i = 0; i < length; i++)
+		{
+			switch (random.nextInt(8))
+			{
+				case 0:
+					sb.append((char) (0x80 + random.nextInt(0x80)));
+					break;
+				case 1:
+					sb.append((char) (0x100 + random.nextInt(0xD700)));
+					break;
+				case 2:
+					sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+					break;
+				case 3:
+					sb.append((char) (0xD800 + random.nextInt(0x800)));
+					break;
+				default:
+					sb.append((char) random.nextInt(0x80));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.url;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class QueryStringParserTest
+{
+	@Test
+	public void testParse()
+	{
+		final UrlParameters parameters = QueryStringParser.parse("?a=1&b&c=x=y&=z&&d=%41+b&e=");
+		assertTrue(parameters.isReadOnly());
+		assertEquals(5, parameters.size());
+		assertEquals("1", parameters.get("a"));
+		assertEquals("", parameters.get("b"));
+		assertEquals("x=y", parameters.get("c"));
+		assertEquals("A b", parameters.get("d"));
+		assertEquals("", parameters.get("e"));
+		assertFalse(parameters.has(""));
+	}
+
+	@Test
+	public void testParseDecodesNames()
+	{
+		final UrlParameters parameters = QueryStringParser.parse("a%20b=1&c+d=2");
+		assertEquals("1", parameters.get("a b"));
+		assertEquals("2", parameters.get("c d"));
+	}
+
+	@Test
+	public void testParseEmpty()
+	{
+		assertTrue(QueryStringParser.parse("").isEmpty());
+		assertTrue(QueryStringParser.parse("?").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseRejectsMalformedNames()
+	{
+		QueryStringParser.parse("a%2=1");
+	}
+
+	@Test(timeout = 5000)
+	public void testParseManyParametersWithoutValuesInLinearTime()
+	{
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500000; i++)
+		{
+			sb.append("flag&");
+		}
+		sb.append("last=1");
+		final UrlParameters parameters = QueryStringParser.parse(sb);
+		assertEquals(2, parameters.size());
+		assertEquals("", parameters.get("flag"));
+		assertEquals("1", parameters.get("last"));
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 Daniel Bechler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.danielbechler.util.url;
+
+import org.junit.*;
+
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+/** @author Daniel Bechler */
+public class UrlParametersTest
+{
+	private static final Charset UTF_8 = Charset.forName("utf-8");
+	private static final Charset ISO_8859_1 = Charset.forName("iso-8859-1");
+
+	@Test
+	public void testToQueryStringIsSortedByName()
+	{
+		final UrlParameters parameters = new UrlParameters().set("b", "2").set("a", "1");
+		assertEquals("a=1&b=2", parameters.toQueryString(UTF_8));
+	}
+
+	@Test
+	public void testToQueryStringEncodesWithTheRequestedCharset()
+	{
+		final UrlParameters parameters = new UrlParameters().set("name", "\u00e4");
+		assertEquals("name=%C3%A4", parameters.toQueryString(UTF_8));
+		assertEquals("name=%E4", parameters.toQueryString(ISO_8859_1));
+		assertEquals("name=%C3%A4", parameters.toQueryString(UTF_8));
+	}
+
+	@Test
+	public void testToQueryStringReflectsModifications()
+	{
+		final UrlParameters parameters = new UrlParameters().set("a", "1");
+		assertEquals("a=1", parameters.toQueryString(UTF_8));
+		parameters.set("a", "2");
+		assertEquals("a=2", parameters.toQueryString(UTF_8));
+	}
+
+	@Test
+	public void testSetRejectsNullName()
+	{
+		final UrlParameters parameters = new UrlParameters();
+		try
+		{
+			parameters.set(null, "1");
+			fail("Expected null names to be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+		assertTrue(parameters.isEmpty());
+		parameters.set("a", "1");
+		assertEquals("a=1", parameters.toQueryString(UTF_8));
+	}
+
+	@Test
+	public void testMerge()
+	{
+		final UrlParameters parameters = new UrlParameters().set("a", "1").set("c", "3");
+		parameters.merge(new UrlParameters().set("b", "2").set("c", "4"));
+		parameters.merge(null);
+		assertEquals("a=1&b=2&c=4", parameters.toQueryString(UTF_8));
+	}
+
+	@Test
+	public void testConcurrentToQueryStringWithDifferentCharsets() throws Exception
+	{
+		final UrlParameters parameters = QueryStringParser.parse("name=%C3%A4", UTF_8);
+		final int threadCount = 4;
+		final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		try
+		{
+			final CountDownLatch done = new CountDownLatch(threadCount);
+			for (int t = 0; t < threadCount; t++)
+			{
+				final boolean utf8 = t % 2 == 0;
+				executorService.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						final String expected = utf8 ? "name=%C3%A4" : "name=%E4";
+						for (int i = 0; i < 100000; i++)
+						{
+							final String actual = parameters.toQueryString(utf8 ? UTF_8 : ISO_8859_1);
+							if (!expected.equals(actual))
+							{
+								failure.compareAndSet(null, actual + " instead of " + expected);
+							}
+						}
+						done.countDown();
+					}
+				});
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			executorService.shutdownNow();
+		}
+		assertNull(failure.get());
+	}
+}